@@ -1,5 +1,6 @@
 package enigma;
 
+import java.util.Arrays;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
  *  to and from indices into the alphabet.
@@ -11,18 +12,35 @@ class Alphabet {
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
         _chars = chars;
+        char low = Character.MAX_VALUE, high = Character.MIN_VALUE;
         for (int i = 0; i < _chars.length(); i++) {
-            if (_chars.charAt(i) == '(' || _chars.charAt(i) == ')') {
-                continue;
+            low = (char) Math.min(low, _chars.charAt(i));
+            high = (char) Math.max(high, _chars.charAt(i));
+        }
+        int span = _chars.isEmpty() ? 0 : high - low + 1;
+        _low = low;
+        if (span <= Math.max(DIRECT_SPAN, DIRECT_DENSITY * size())) {
+            _index = new int[span];
+            Arrays.fill(_index, -1);
+        } else {
+            int capacity = 2;
+            while (capacity < 2 * size()) {
+                capacity <<= 1;
             }
-            for (int j = i + 1; j < _chars.length(); j++) {
-                if (_chars.charAt(j) == '(' || _chars.charAt(j) == ')') {
+            _keys = new char[capacity];
+            _slots = new int[capacity];
+            Arrays.fill(_slots, -1);
+            _shift = Integer.numberOfLeadingZeros(capacity - 1);
+        }
+        for (int i = 0; i < _chars.length(); i++) {
+            char ch = _chars.charAt(i);
+            if (toInt(ch) >= 0) {
+                if (ch == '(' || ch == ')') {
                     continue;
                 }
-                if (_chars.charAt(i) == (_chars.charAt(j))) {
-                    throw new EnigmaException("No duplicates in the Alphabet");
-                }
+                throw new EnigmaException("No duplicates in the Alphabet");
             }
+            put(ch, i);
         }
     }
 
@@ -38,7 +56,7 @@ class Alphabet {
 
     /** Returns true if CH is in this alphabet. */
     boolean contains(char ch) {
-        return _chars.contains(String.valueOf(ch));
+        return toInt(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
@@ -48,13 +66,60 @@ class Alphabet {
     }
 
     /** Returns the index of character CH which must be in
-     *  the alphabet. This is the inverse of toChar(). */
+     *  the alphabet. This is the inverse of toChar(). Returns -1 if CH
+     *  is not in the alphabet. */
     int toInt(char ch) {
+        if (_index != null) {
+            int k = ch - _low;
+            return k >= 0 && k < _index.length ? _index[k] : -1;
+        }
+        int h = hash(ch);
+        while (_slots[h] >= 0) {
+            if (_keys[h] == ch) {
+                return _slots[h];
+            }
+            h = (h + 1) & (_slots.length - 1);
+        }
+        return -1;
+    }
+
+    /** Record that CH has index K. */
+    private void put(char ch, int k) {
+        if (_index != null) {
+            _index[ch - _low] = k;
+            return;
+        }
+        int h = hash(ch);
+        while (_slots[h] >= 0) {
+            h = (h + 1) & (_slots.length - 1);
+        }
+        _keys[h] = ch;
+        _slots[h] = k;
+    }
 
-        return _chars.indexOf(ch + "");
+    /** Return the home slot of CH in the open-addressed table. */
+    private int hash(char ch) {
+        return (ch * 0x9E3779B9) >>> _shift;
     }
-    /** additional. */
 
+    /** Largest character range always given a direct-indexed table. */
+    private static final int DIRECT_SPAN = 1024;
+    /** Largest ratio of character range to alphabet size for which a
+     *  direct-indexed table is used rather than hashing. */
+    private static final int DIRECT_DENSITY = 8;
+
+    /** My characters, in index order. */
     private String _chars;
+    /** Smallest character in a direct-indexed alphabet. */
+    private final char _low;
+    /** Index of character _low + k at k, or -1; null when hashing. */
+    private int[] _index;
+    /** Keys of the open-addressed table used for sparse alphabets. */
+    private char[] _keys;
+    /** Index of the character in the same slot of _keys, or -1 if the
+     *  slot is empty. */
+    private int[] _slots;
+    /** Shift reducing a 32-bit hash to a slot of _slots. */
+    private int _shift;
 
 }
@@ -0,0 +1,60 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the Alphabet class.
+ *  @author Kaley Wong
+ */
+public class AlphabetTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Check that ALPHA maps each character of CHARS to its index and
+     *  back, and rejects MISSING. */
+    private void checkAlphabet(Alphabet alpha, String chars, char missing) {
+        assertEquals(chars.length(), alpha.size());
+        for (int i = 0; i < chars.length(); i += 1) {
+            assertTrue(alpha.contains(chars.charAt(i)));
+            assertEquals(i, alpha.toInt(chars.charAt(i)));
+            assertEquals(chars.charAt(i), alpha.toChar(i));
+        }
+        assertFalse(alpha.contains(missing));
+        assertEquals(-1, alpha.toInt(missing));
+    }
+
+    @Test
+    public void testDefault() {
+        checkAlphabet(new Alphabet(), "ABCDEFGHIJKLMNOPQRSTUVWXYZ", 'a');
+    }
+
+    @Test
+    public void testSparse() {
+        String chars = "A\u4E2D\uFFEE\u0416z";
+        checkAlphabet(new Alphabet(chars), chars, 'B');
+    }
+
+    @Test
+    public void testLarge() {
+        StringBuilder chars = new StringBuilder();
+        for (char c = '\u4E00'; c < '\u4E00' + 3000; c += 1) {
+            chars.append(c);
+        }
+        checkAlphabet(new Alphabet(chars.toString()), chars.toString(), 'A');
+        chars.setLength(0);
+        for (char c = 'A'; c < 'A' + 60000; c += 7) {
+            chars.append(c);
+        }
+        checkAlphabet(new Alphabet(chars.toString()), chars.toString(), 'B');
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testDuplicateSparse() {
+        new Alphabet("A\uFFEEB\uFFEE");
+    }
+
+}
@@ -0,0 +1,296 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** A simulation of the Turing-Welchman bombe: a search for the keys of a
+ *  configuration under which a ciphertext begins with a crib, when the
+ *  plugboard is unknown.
+ *
+ *  The crib and ciphertext give a menu: a graph on the letters with an
+ *  edge between the crib and cipher letters at each position.  If the
+ *  rotors alone take x to y at the position of an edge between letters a
+ *  and b, then a plugboard taking a to x must take b to y.  Starting from
+ *  a hypothesis that the plugboard takes the most connected letter of the
+ *  menu to some letter, the bombe follows these implications, together
+ *  with those of the diagonal board (a plugboard taking a to x takes x
+ *  to a).  It stops, rejecting the hypothesis, as soon as some letter is
+ *  implied to be taken to two letters; every other hypothesis about the
+ *  same letter implied by then, directly or through the diagonal board,
+ *  is rejected with it.  The letters to
+ *  which each letter is implied to be taken are held as a bit mask, so
+ *  that the alphabet may have at most 64 letters.
+ *
+ *  A key is accepted, as a stop, for each hypothesis that is not
+ *  rejected, and is followed by the plugboard pairs that hypothesis
+ *  implies.  Short or poorly connected menus give false stops, which must
+ *  be checked by other means.  Keys are enumerated and searched
+ *  concurrently as for any KeySearch.
+ *  @author Kaley Wong
+ */
+class Bombe extends KeySearch {
+
+    /** A bombe searching the keys of CATALOG, with any plugboard, under
+     *  which CIPHER begins with CRIB.  CIPHER and CRIB must be as for a
+     *  KeySearch, and no letter of CRIB may be the same as the letter of
+     *  CIPHER in the same position. */
+    Bombe(RotorCatalog catalog, String cipher, String crib) {
+        super(catalog, new Permutation("", catalog.alphabet()), cipher,
+              crib);
+        _alphabet = catalog.alphabet();
+        _size = _alphabet.size();
+        _slots = catalog.numRotors();
+        if (_size > Long.SIZE) {
+            throw error("the bombe needs an alphabet of at most %d letters",
+                        Long.SIZE);
+        }
+        _full = _size == Long.SIZE ? -1L : (1L << _size) - 1;
+        _length = crib.length();
+        int[] degree = new int[_size];
+        for (int i = 0; i < _length; i++) {
+            int p = _alphabet.toInt(crib.charAt(i)),
+                c = _alphabet.toInt(cipher.charAt(i));
+            if (p == c) {
+                throw error("crib letter %c cannot encrypt to itself",
+                            crib.charAt(i));
+            }
+            degree[p] += 1;
+            degree[c] += 1;
+        }
+        int testLetter = 0;
+        for (int a = 0; a < _size; a++) {
+            if (degree[a] > degree[testLetter]) {
+                testLetter = a;
+            }
+        }
+        _testLetter = testLetter;
+        _edges = new int[_size][];
+        for (int a = 0; a < _size; a++) {
+            _edges[a] = new int[2 * degree[a]];
+            degree[a] = 0;
+        }
+        for (int i = 0; i < _length; i++) {
+            int p = _alphabet.toInt(crib.charAt(i)),
+                c = _alphabet.toInt(cipher.charAt(i));
+            addEdge(p, c, i, degree);
+            addEdge(c, p, i, degree);
+        }
+    }
+
+    /** Add to _edges an edge from letter A to letter B at crib position
+     *  POSN, where COUNT[A] is the number of edges already added from
+     *  A. */
+    private void addEdge(int a, int b, int posn, int[] count) {
+        _edges[a][count[a]++] = b;
+        _edges[a][count[a]++] = posn;
+    }
+
+    @Override
+    KeyTest newTest() {
+        return new Scan()::stops;
+    }
+
+    /** The scratch space of one task, with which it tests the keys
+     *  given to it one at a time.  The keys of a block share the
+     *  settings of all but their rightmost rotors, so their rotors pass
+     *  through few distinct states as the crib is converted.  The
+     *  conversions made by the rotors in each state are remembered until
+     *  the next block begins. */
+    private class Scan {
+
+        /** Return the plugboard pairs, as text to follow a settings line,
+         *  of each stop of MACHINE, which is set up with a candidate key
+         *  that begins a new block iff FIRST. */
+        List<String> stops(Machine machine, boolean first) {
+            if (first) {
+                _states = 0;
+            }
+            for (int i = 0; i < _length; i++) {
+                machine.advance();
+                _scramblers[i] = scrambler(machine);
+            }
+            List<String> result = List.of();
+            long tried = 0;
+            for (int x = 0; x < _size && tried != _full; x++) {
+                if ((tried & (1L << x)) == 0) {
+                    boolean consistent = close(x);
+                    tried |= _live[_testLetter];
+                    for (int k = 0; k < _touched; k++) {
+                        int a = _letters[k];
+                        tried |= (_live[a] >>> _testLetter & 1) << a;
+                    }
+                    if (consistent) {
+                        if (result.isEmpty()) {
+                            result = new ArrayList<>();
+                        }
+                        result.add(pairs());
+                    }
+                }
+            }
+            return result;
+        }
+
+        /** Compute in _live what follows from the hypothesis that the
+         *  plugboard takes _testLetter to X, and return true iff it is
+         *  consistent.  Stop early, returning false, at the first
+         *  contradiction. */
+        private boolean close(int x) {
+            for (int k = 0; k < _touched; k++) {
+                _live[_letters[k]] = 0;
+                _pending[_letters[k]] = 0;
+            }
+            _touched = 0;
+            _top = 0;
+            _contradiction = false;
+            imply(_testLetter, x);
+            while (_top > 0) {
+                _top -= 1;
+                int a = _stack[_top];
+                long pending = _pending[a];
+                _pending[a] = 0;
+                int[] edges = _edges[a];
+                for (; pending != 0; pending &= pending - 1) {
+                    int y = Long.numberOfTrailingZeros(pending);
+                    imply(y, a);
+                    for (int e = 0; e < edges.length; e += 2) {
+                        imply(edges[e], _scramblers[edges[e + 1]][y]);
+                    }
+                    if (_contradiction) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /** Record that the plugboard takes letter A to letter Y, noting a
+         *  contradiction if it was known to take A to another letter. */
+        private void imply(int a, int y) {
+            long bit = 1L << y;
+            long live = _live[a];
+            if ((live & bit) == 0) {
+                _live[a] = live | bit;
+                if (live == 0) {
+                    _letters[_touched] = a;
+                    _touched += 1;
+                } else {
+                    _contradiction = true;
+                }
+                if (_pending[a] == 0) {
+                    _stack[_top] = a;
+                    _top += 1;
+                }
+                _pending[a] |= bit;
+            }
+        }
+
+        /** Return the conversion of each letter by the rotors of MACHINE
+         *  alone, at their current settings. */
+        private int[] scrambler(Machine machine) {
+            machine.rotorSettings(_settings);
+            int fast = _slots - 1;
+            int state;
+            for (state = 0; state < _states; state++) {
+                if (Arrays.equals(_settings, 0, fast, _slow[state], 0, fast)) {
+                    break;
+                }
+            }
+            if (state == _states) {
+                if (state == _slow.length) {
+                    grow();
+                }
+                System.arraycopy(_settings, 0, _slow[state], 0, fast);
+                _known[state] = 0;
+                _states += 1;
+            }
+            int[] result = _tables[state][_settings[fast]];
+            long bit = 1L << _settings[fast];
+            if ((_known[state] & bit) == 0) {
+                machine.scrambler(result);
+                _known[state] |= bit;
+            }
+            return result;
+        }
+
+        /** Increase the number of states I can remember. */
+        private void grow() {
+            int old = _slow.length, size = Math.max(MIN_STATES, 2 * old);
+            _slow = Arrays.copyOf(_slow, size);
+            _tables = Arrays.copyOf(_tables, size);
+            _known = Arrays.copyOf(_known, size);
+            for (int k = old; k < size; k++) {
+                _slow[k] = new int[_slots];
+                _tables[k] = new int[_size][_size];
+            }
+        }
+
+        /** Return the plugboard pairs implied by a consistent hypothesis
+         *  in _live, each preceded by a blank, such as " (AB) (CD)". */
+        private String pairs() {
+            StringBuilder result = new StringBuilder();
+            for (int a = 0; a < _size; a++) {
+                int y = Long.numberOfTrailingZeros(_live[a]);
+                if (a < y && y < _size) {
+                    result.append(" (").append(_alphabet.toChar(a))
+                        .append(_alphabet.toChar(y)).append(')');
+                }
+            }
+            return result.toString();
+        }
+
+        /** Conversion of each letter by the rotors alone at each crib
+         *  position, as held in _tables. */
+        private final int[][] _scramblers = new int[_length][];
+        /** Current rotor settings, indexed by slot. */
+        private final int[] _settings = new int[_slots];
+        /** Number of rotor states remembered for the current block. */
+        private int _states;
+        /** The settings of all but the rightmost rotor in each remembered
+         *  state, indexed by slot, in _slow[0 .. _states-1]. */
+        private int[][] _slow = new int[0][];
+        /** Conversion of each letter by the rotors alone in each
+         *  remembered state, for each setting of the rightmost rotor. */
+        private int[][][] _tables = new int[0][][];
+        /** Bit mask of the settings of the rightmost rotor for which each
+         *  entry of _tables has been computed. */
+        private long[] _known = new long[0];
+        /** Letters to which each letter is implied to go, as bit masks. */
+        private final long[] _live = new long[_size];
+        /** Bits of _live whose consequences have not been followed. */
+        private final long[] _pending = new long[_size];
+        /** The letters with bits in _pending, in _stack[0 .. _top-1]. */
+        private final int[] _stack = new int[_size];
+        /** Number of letters in _stack. */
+        private int _top;
+        /** The letters with bits in _live, in _letters[0 .. _touched-1]. */
+        private final int[] _letters = new int[_size];
+        /** Number of letters in _letters. */
+        private int _touched;
+        /** True iff _live takes some letter to two letters. */
+        private boolean _contradiction;
+    }
+
+    /** Number of rotor states a Scan can first remember. */
+    private static final int MIN_STATES = 4;
+
+    /** The alphabet. */
+    private final Alphabet _alphabet;
+    /** Size of the alphabet. */
+    private final int _size;
+    /** Number of rotor slots. */
+    private final int _slots;
+    /** Bit mask of every letter of the alphabet. */
+    private final long _full;
+    /** Length of the crib. */
+    private final int _length;
+    /** The menu: for each letter, the letter at the other end and the
+     *  crib position of each of its edges, in turn. */
+    private final int[][] _edges;
+    /** The letter of the menu with the most edges, about which
+     *  hypotheses are made. */
+    private final int _testLetter;
+
+}
@@ -0,0 +1,153 @@
+package enigma;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import static enigma.EnigmaException.*;
+import static enigma.RotorDefinition.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** Reads and writes compiled configurations: binary snapshots of a
+ *  RotorCatalog that load without parsing any text.
+ *
+ *  A snapshot holds, all big-endian: MAGIC and VERSION; the alphabet as a
+ *  string; the numbers of rotor slots and pawls; and the number of rotors
+ *  followed by each rotor.  A rotor is its kind (as for RotorDefinition),
+ *  its name, its notches (empty unless MOVING), and the image of each
+ *  alphabet index under its permutation, as an int.  A string is its
+ *  length as an int followed by its chars.
+ *  @author Kaley Wong
+ */
+class ConfigSnapshot {
+
+    /** First four bytes of a snapshot, which cannot begin a text
+     *  configuration. */
+    static final int MAGIC = 0x89454E47;
+    /** Version of the snapshot format written. */
+    static final int VERSION = 1;
+
+    /** Return true iff the file named NAME exists and begins like a
+     *  snapshot. */
+    static boolean isSnapshot(String name) {
+        try (FileChannel in = FileChannel.open(Paths.get(name), READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES);
+            while (magic.hasRemaining() && in.read(magic) >= 0) {
+                continue;
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Write CATALOG as a snapshot to the file named NAME. */
+    static void write(RotorCatalog catalog, String name) {
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(name)))) {
+            Alphabet alpha = catalog.alphabet();
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            StringBuilder chars = new StringBuilder();
+            for (int i = 0; i < alpha.size(); i++) {
+                chars.append(alpha.toChar(i));
+            }
+            writeString(out, chars.toString());
+            out.writeInt(catalog.numRotors());
+            out.writeInt(catalog.numPawls());
+            out.writeInt(catalog.rotors().size());
+            for (Rotor rotor : catalog.rotors()) {
+                if (rotor.rotates()) {
+                    out.writeByte(MOVING);
+                } else {
+                    out.writeByte(rotor.reflecting() ? REFLECTOR : FIXED);
+                }
+                writeString(out, rotor.name());
+                writeString(out, rotor.rotates()
+                                 ? ((MovingRotor) rotor).notches() : "");
+                for (int i = 0; i < alpha.size(); i++) {
+                    out.writeInt(rotor.permutation().permute(i));
+                }
+            }
+        } catch (IOException excp) {
+            throw error("could not write %s: %s", name, excp.getMessage());
+        }
+    }
+
+    /** Return the catalog in the snapshot file named NAME, which is read
+     *  by memory-mapping it.  The permutation tables of its rotors are
+     *  left in the mapped file, and each is copied out only when its rotor
+     *  is first built. */
+    static RotorCatalog read(String name) {
+        try (FileChannel in = FileChannel.open(Paths.get(name), READ)) {
+            return read(in.map(MapMode.READ_ONLY, 0, in.size()), name);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        } catch (BufferUnderflowException excp) {
+            throw error("snapshot %s is truncated", name);
+        }
+    }
+
+    /** Return the catalog in the snapshot IN, read from the file named
+     *  NAME. */
+    private static RotorCatalog read(ByteBuffer in, String name) {
+        if (in.getInt() != MAGIC) {
+            throw error("%s is not a snapshot", name);
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw error("snapshot %s has unsupported version %d", name,
+                        version);
+        }
+        Alphabet alpha = new Alphabet(readString(in));
+        int numRotors = in.getInt();
+        int numPawls = in.getInt();
+        int count = in.getInt();
+        ArrayList<RotorDefinition> rotors = new ArrayList<>();
+        for (int r = 0; r < count; r++) {
+            int kind = in.get();
+            String rotorName = readString(in);
+            String notches = readString(in);
+            int tableBytes = alpha.size() * Integer.BYTES;
+            if (in.remaining() < tableBytes) {
+                throw new BufferUnderflowException();
+            }
+            IntBuffer table = in.slice().limit(tableBytes).asIntBuffer();
+            in.position(in.position() + tableBytes);
+            if (kind != MOVING && kind != FIXED && kind != REFLECTOR) {
+                throw error("snapshot %s has a bad rotor kind", name);
+            }
+            rotors.add(new RotorDefinition(kind, rotorName, notches, table,
+                                           alpha));
+        }
+        return new RotorCatalog(alpha, numRotors, numPawls, rotors);
+    }
+
+    /** Write STR to OUT. */
+    private static void writeString(DataOutputStream out, String str)
+        throws IOException {
+        out.writeInt(str.length());
+        out.writeChars(str);
+    }
+
+    /** Return the next string in IN. */
+    private static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if (len < 0 || len > in.remaining() / Character.BYTES) {
+            throw new BufferUnderflowException();
+        }
+        char[] chars = new char[len];
+        in.asCharBuffer().get(chars);
+        in.position(in.position() + len * Character.BYTES);
+        return new String(chars);
+    }
+
+}
@@ -0,0 +1,159 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the ConfigSnapshot class.
+ *  @author Kaley Wong
+ */
+public class ConfigSnapshotTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a catalog of 4-rotor, 2-pawl machines holding naval
+     *  reflector B, fixed rotors Beta and Gamma, and moving rotors I, II,
+     *  and VI. */
+    private static RotorCatalog catalog() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        String[][] notches = { { "I", "Q" }, { "II", "E" }, { "VI", "ZM" } };
+        for (String[] notch : notches) {
+            rotors.add(new MovingRotor(notch[0],
+                           new Permutation(NAVALA.get(notch[0]), UPPER),
+                           notch[1]));
+        }
+        for (String name : new String[] { "Beta", "Gamma" }) {
+            rotors.add(new FixedRotor(name,
+                           new Permutation(NAVALA.get(name), UPPER)));
+        }
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        return new RotorCatalog(UPPER, 4, 2, rotors);
+    }
+
+    /** Return the message raised by reading the snapshot BYTES, or null
+     *  if it is read without error. */
+    private String readError(byte[] bytes) throws IOException {
+        Files.write(_file, bytes);
+        try {
+            ConfigSnapshot.read(_file.toString());
+            return null;
+        } catch (EnigmaException excp) {
+            return excp.getMessage();
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        _file = Files.createTempFile("enigma", ".snap");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.delete(_file);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRoundTrip() {
+        RotorCatalog original = catalog();
+        ConfigSnapshot.write(original, _file.toString());
+        assertTrue(ConfigSnapshot.isSnapshot(_file.toString()));
+        RotorCatalog copy = ConfigSnapshot.read(_file.toString());
+        assertEquals(4, copy.numRotors());
+        assertEquals(2, copy.numPawls());
+        assertEquals(UPPER.size(), copy.alphabet().size());
+        for (int k = 0; k < UPPER.size(); k += 1) {
+            assertEquals(UPPER.toChar(k), copy.alphabet().toChar(k));
+        }
+        List<Rotor> rotors = original.rotors();
+        List<Rotor> copies = copy.rotors();
+        assertEquals(rotors.size(), copies.size());
+        for (int r = 0; r < rotors.size(); r += 1) {
+            Rotor rotor = rotors.get(r), same = copies.get(r);
+            assertEquals(rotor.name(), same.name());
+            assertEquals(rotor.rotates(), same.rotates());
+            assertEquals(rotor.reflecting(), same.reflecting());
+            for (int k = 0; k < UPPER.size(); k += 1) {
+                assertEquals(rotor.permutation().permute(k),
+                             same.permutation().permute(k));
+                assertEquals(rotor.atNotch(k), same.atNotch(k));
+            }
+        }
+        Machine machine = new Machine(copy);
+        machine.insertRotors(new String[] { "B", "Gamma", "VI", "II" });
+        machine.setRotors("AZM");
+        machine.setPlugboard(new Permutation("(AQ)", UPPER));
+        Machine expected = new Machine(original);
+        expected.insertRotors(new String[] { "B", "Gamma", "VI", "II" });
+        expected.setRotors("AZM");
+        expected.setPlugboard(new Permutation("(AQ)", UPPER));
+        assertEquals(expected.convert("HELLOWORLDHELLOWORLD"),
+                     machine.convert("HELLOWORLDHELLOWORLD"));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        ConfigSnapshot.write(catalog(), _file.toString());
+        byte[] bytes = Files.readAllBytes(_file);
+        for (int len = Integer.BYTES; len < bytes.length; len += 1) {
+            assertEquals("snapshot " + _file + " is truncated",
+                         readError(Arrays.copyOf(bytes, len)));
+        }
+        assertNull(readError(bytes));
+    }
+
+    @Test
+    public void testBadHeader() throws IOException {
+        ConfigSnapshot.write(catalog(), _file.toString());
+        byte[] bytes = Files.readAllBytes(_file);
+        byte[] text = "ABC\n2 1\n".getBytes();
+        assertFalse(ConfigSnapshot.isSnapshot(_file + ".none"));
+        Files.write(_file, text);
+        assertFalse(ConfigSnapshot.isSnapshot(_file.toString()));
+        assertEquals(_file + " is not a snapshot", readError(text));
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, ConfigSnapshot.VERSION
+                                      + 1);
+        assertEquals("snapshot " + _file + " has unsupported version "
+                     + (ConfigSnapshot.VERSION + 1), readError(bytes));
+    }
+
+    @Test
+    public void testBadTable() throws IOException {
+        ConfigSnapshot.write(catalog(), _file.toString());
+        byte[] bytes = Files.readAllBytes(_file);
+        int last = bytes.length - Integer.BYTES;
+        ByteBuffer.wrap(bytes).putInt(last, 0);
+        Files.write(_file, bytes);
+        RotorCatalog catalog = ConfigSnapshot.read(_file.toString());
+        assertTrue(catalog.find("I").rotates());
+        try {
+            catalog.find("B");
+            fail("built a rotor from a bad table");
+        } catch (EnigmaException excp) {
+            assertEquals("rotor B: table is not a permutation",
+                         excp.getMessage());
+        }
+    }
+
+    /** File holding the snapshot of a test. */
+    private Path _file;
+
+}
@@ -0,0 +1,230 @@
+package enigma;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
+
+import static enigma.EnigmaException.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** A server that converts messages for local clients, keeping parsed
+ *  configurations and set-up machines resident between requests.
+ *
+ *  A client sends any number of requests on one connection, each made of
+ *  three fields: the id of a configuration, a settings line (beginning
+ *  with '*', as in an input file), and a message.  Each field is a 4-byte
+ *  big-endian length followed by that many bytes of UTF-8.  The server
+ *  answers each request in turn with a status byte, OK or FAILED,
+ *  followed by one field: the converted message, with its whitespace
+ *  removed, or an error message.  Requests on different connections are
+ *  served concurrently, on up to MAX_CONNECTIONS connections at a time.
+ *  @author Kaley Wong
+ */
+class EnigmaServer {
+
+    /** Status of a request that succeeded. */
+    static final int OK = 0;
+    /** Status of a request that failed. */
+    static final int FAILED = 1;
+    /** Longest field accepted, in bytes. */
+    static final int MAX_FIELD = 1 << 24;
+    /** Most connections served at once; further clients wait to be
+     *  accepted until one of them closes. */
+    static final int MAX_CONNECTIONS = 64;
+
+    /** A server for the configurations in POOLS, indexed by id, that uses
+     *  SETUP to borrow a machine set up by a settings line from one of
+     *  them. */
+    EnigmaServer(Map<String, MachinePool> pools,
+                 BiFunction<MachinePool, String, Machine> setUp) {
+        _pools = pools;
+        _setUp = setUp;
+    }
+
+    /** Return the address described by ADDRESS: a port number on the
+     *  loopback interface, or otherwise the path of a Unix domain
+     *  socket. */
+    static SocketAddress address(String address) {
+        if (address.matches("\\d+")) {
+            try {
+                return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                             Integer.parseInt(address));
+            } catch (IllegalArgumentException excp) {
+                throw error("bad port number %s", address);
+            }
+        }
+        return UnixDomainSocketAddress.of(address);
+    }
+
+    /** Serve clients connecting to ADDRESS until the process ends or the
+     *  calling thread is interrupted.  A Unix domain socket left at
+     *  ADDRESS by a server that is no longer running is replaced. */
+    void serve(SocketAddress address) {
+        ExecutorService workers = Executors.newFixedThreadPool(MAX_CONNECTIONS);
+        Semaphore connections = new Semaphore(MAX_CONNECTIONS);
+        try (ServerSocketChannel server = open(address)) {
+            removeStale(address);
+            server.bind(address);
+            while (true) {
+                connections.acquire();
+                SocketChannel client = server.accept();
+                workers.execute(() -> {
+                    try {
+                        serve(client);
+                    } finally {
+                        connections.release();
+                    }
+                });
+            }
+        } catch (ClosedByInterruptException | InterruptedException excp) {
+            return;
+        } catch (IOException excp) {
+            throw error("could not serve on %s: %s", address,
+                        excp.getMessage());
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /** Remove the file at ADDRESS, if it is a Unix domain socket on which
+     *  no server is listening.  Anything else there is left for bind to
+     *  reject. */
+    private static void removeStale(SocketAddress address)
+        throws IOException {
+        if (!(address instanceof UnixDomainSocketAddress)) {
+            return;
+        }
+        Path path = ((UnixDomainSocketAddress) address).getPath();
+        try {
+            if (!Files.readAttributes(path, BasicFileAttributes.class,
+                                      LinkOption.NOFOLLOW_LINKS).isOther()) {
+                return;
+            }
+        } catch (NoSuchFileException excp) {
+            return;
+        }
+        SocketChannel probe;
+        try {
+            probe = SocketChannel.open(address);
+        } catch (IOException excp) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        probe.close();
+    }
+
+    /** Return an unbound server channel for ADDRESS. */
+    private static ServerSocketChannel open(SocketAddress address)
+        throws IOException {
+        if (address instanceof UnixDomainSocketAddress) {
+            return ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        return ServerSocketChannel.open();
+    }
+
+    /** Answer the requests of CLIENT until it closes its connection, or
+     *  sends a malformed request. */
+    private void serve(SocketChannel client) {
+        try (client;
+             DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(Channels.newInputStream(client)));
+             DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            char[] text = new char[0];
+            while (true) {
+                String config = readField(in);
+                String settings = readField(in);
+                String message = readField(in);
+                if (text.length < message.length()) {
+                    text = new char[message.length()];
+                }
+                try {
+                    String result = convert(config, settings, message, text);
+                    out.writeByte(OK);
+                    writeField(out, result);
+                } catch (EnigmaException excp) {
+                    out.writeByte(FAILED);
+                    writeField(out, excp.getMessage());
+                } catch (RuntimeException excp) {
+                    out.writeByte(FAILED);
+                    writeField(out, "internal error: " + excp);
+                }
+                out.flush();
+            }
+        } catch (IOException excp) {
+            return;
+        }
+    }
+
+    /** Return the conversion of MESSAGE, less its whitespace, by the
+     *  configuration whose id is CONFIG set up according to SETTINGS,
+     *  using TEXT, which is at least as long as MESSAGE, as scratch
+     *  space. */
+    private String convert(String config, String settings, String message,
+                           char[] text) {
+        MachinePool pool = _pools.get(config);
+        if (pool == null) {
+            throw error("unknown configuration %s", config);
+        }
+        int len = 0;
+        for (int i = 0; i < message.length(); i++) {
+            char ch = message.charAt(i);
+            if (!Character.isWhitespace(ch)) {
+                text[len++] = ch;
+            }
+        }
+        Machine machine = _setUp.apply(pool, settings);
+        try {
+            machine.convert(text, 0, len, text, 0);
+        } finally {
+            pool.giveBack(machine);
+        }
+        return new String(text, 0, len);
+    }
+
+    /** Return the next field read from IN. */
+    private static String readField(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0 || len > MAX_FIELD) {
+            throw new IOException("bad field length");
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /** Write FIELD to OUT. */
+    private static void writeField(DataOutputStream out, String field)
+        throws IOException {
+        byte[] bytes = field.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Machines for each configuration, indexed by id. */
+    private final Map<String, MachinePool> _pools;
+    /** Borrows a machine set up by a settings line from a pool. */
+    private final BiFunction<MachinePool, String, Machine> _setUp;
+
+}
@@ -0,0 +1,243 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static enigma.TestUtils.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** The suite of all JUnit tests for the EnigmaServer class.
+ *  @author Kaley Wong
+ */
+public class EnigmaServerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a catalog of 5-rotor, 3-pawl machines holding naval
+     *  reflector B, fixed rotor Beta, and moving rotors I to V. */
+    private static RotorCatalog navalCatalog() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        String[] notches = { "Q", "E", "V", "J", "Z" };
+        String[] names = { "I", "II", "III", "IV", "V" };
+        for (int i = 0; i < names.length; i += 1) {
+            rotors.add(new MovingRotor(names[i],
+                           new Permutation(NAVALA.get(names[i]), UPPER),
+                           notches[i]));
+        }
+        rotors.add(new FixedRotor("Beta",
+                       new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"), UPPER)));
+        return new RotorCatalog(UPPER, 5, 3, rotors);
+    }
+
+    /** Return a machine borrowed from POOL, set up by SETTINGS, which is
+     *  of the form "* B Beta III IV I AXLE (YF) (ZH)". */
+    private static Machine borrow(MachinePool pool, String settings) {
+        String[] words = settings.split(" ");
+        return pool.borrow(Arrays.copyOfRange(words, 1, 6), words[6],
+                           String.join(" ", Arrays.copyOfRange(words, 7,
+                                                               words.length)));
+    }
+
+    /** Start a server for the configuration "naval" on _address, in a
+     *  new thread. */
+    private void startServer() {
+        EnigmaServer server =
+            new EnigmaServer(Map.of("naval", new MachinePool(navalCatalog(),
+                                                             4)),
+                             EnigmaServerTest::borrow);
+        _server = new Thread(() -> server.serve(_address));
+        _server.setDaemon(true);
+        _server.start();
+    }
+
+    /** Stop the server started by startServer. */
+    private void stopServer() throws InterruptedException {
+        _server.interrupt();
+        _server.join();
+    }
+
+    /** Return a new connection to the server on _address, waiting for it
+     *  to start listening. */
+    private SocketChannel connect() throws Exception {
+        while (true) {
+            try {
+                return SocketChannel.open(_address);
+            } catch (IOException excp) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    /** Send a request to convert MESSAGE by configuration CONFIG set up
+     *  by SETTINGS to OUT. */
+    private void send(DataOutputStream out, String config, String settings,
+                      String message) throws IOException {
+        write(out, config, settings, message);
+        out.flush();
+    }
+
+    /** Write FIELDS of a request to OUT, without flushing them. */
+    private void write(DataOutputStream out, String... fields)
+        throws IOException {
+        for (String field : fields) {
+            byte[] bytes = field.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /** Return the reply read from IN, as its status followed by its
+     *  field, such as "0 SSOPZ". */
+    private String reply(DataInputStream in) throws IOException {
+        int status = in.readByte();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return status + " " + new String(bytes, UTF_8);
+    }
+
+    /** Return the reply of a server on a new connection to a request to
+     *  convert MESSAGE by the naval configuration set up by SETTINGS. */
+    private String convert(String settings, String message)
+        throws Exception {
+        try (SocketChannel client = connect();
+             DataInputStream in =
+                 new DataInputStream(Channels.newInputStream(client));
+             DataOutputStream out =
+                 new DataOutputStream(Channels.newOutputStream(client))) {
+            send(out, "naval", settings, message);
+            return reply(in);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        _dir = Files.createTempDirectory("enigma");
+        _address = UnixDomainSocketAddress.of(_dir.resolve("socket"));
+        startServer();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        stopServer();
+        Files.deleteIfExists(_address.getPath());
+        Files.delete(_dir);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testConvert() throws Exception {
+        assertEquals(EnigmaServer.OK + " SSOPZISSZOULIERZIAWLTHA",
+                     convert("* B Beta III IV I AXLE (YF) (ZH)",
+                             "HYIHL BKOML IUYDC MPPSF SZW"));
+    }
+
+    @Test
+    public void testUnknownRotor() throws Exception {
+        assertEquals(EnigmaServer.FAILED + " unknown rotor IX",
+                     convert("* B Beta III IX I AXLE", "HYIHL"));
+    }
+
+    @Test
+    public void testUnknownReflector() throws Exception {
+        assertEquals(EnigmaServer.FAILED + " unknown rotor X",
+                     convert("* X Beta III IV I AXLE", "HYIHL"));
+    }
+
+    @Test
+    public void testBadCharacter() throws Exception {
+        assertTrue(convert("* B Beta III IV I AXLE", "HY1HL")
+                   .startsWith(EnigmaServer.FAILED + " "));
+    }
+
+    @Test
+    public void testErrorsKeepConnection() throws Exception {
+        try (SocketChannel client = connect();
+             DataInputStream in =
+                 new DataInputStream(Channels.newInputStream(client));
+             DataOutputStream out =
+                 new DataOutputStream(Channels.newOutputStream(client))) {
+            send(out, "naval", "* B Beta III", "HYIHL");
+            assertTrue(reply(in).startsWith(EnigmaServer.FAILED
+                                            + " internal error: "));
+            send(out, "army", "* B Beta III IV I AXLE", "HYIHL");
+            assertEquals(EnigmaServer.FAILED
+                         + " unknown configuration army", reply(in));
+            send(out, "naval", "* B Beta III IV I AXLE (YF) (ZH)", "HYIHL");
+            assertEquals(EnigmaServer.OK + " SSOPZ", reply(in));
+        }
+    }
+
+    @Test
+    public void testPartialNextRequest() throws Exception {
+        try (SocketChannel client = connect();
+             DataInputStream in =
+                 new DataInputStream(Channels.newInputStream(client));
+             DataOutputStream out =
+                 new DataOutputStream(Channels.newOutputStream(client))) {
+            String settings = "* B Beta III IV I AXLE (YF) (ZH)";
+            write(out, "naval", settings, "HYIHL", "naval");
+            byte[] bytes = settings.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes, 0, 2);
+            out.flush();
+            assertEquals(EnigmaServer.OK + " SSOPZ", reply(in));
+            out.write(bytes, 2, bytes.length - 2);
+            write(out, "HYIHL");
+            out.flush();
+            assertEquals(EnigmaServer.OK + " SSOPZ", reply(in));
+        }
+    }
+
+    @Test
+    public void testClosedConnection() throws Exception {
+        try (SocketChannel client = connect();
+             DataOutputStream out =
+                 new DataOutputStream(Channels.newOutputStream(client))) {
+            out.writeInt(5);
+            out.write("nav".getBytes(UTF_8));
+            out.flush();
+        }
+        assertEquals(EnigmaServer.OK + " SSOPZ",
+                     convert("* B Beta III IV I AXLE (YF) (ZH)", "HYIHL"));
+    }
+
+    @Test
+    public void testStaleSocket() throws Exception {
+        connect().close();
+        stopServer();
+        assertTrue(Files.exists(_address.getPath()));
+        startServer();
+        assertEquals(EnigmaServer.OK + " SSOPZ",
+                     convert("* B Beta III IV I AXLE (YF) (ZH)", "HYIHL"));
+    }
+
+    /** Directory holding the server's socket. */
+    private Path _dir;
+    /** Address of the server. */
+    private UnixDomainSocketAddress _address;
+    /** Thread running the server. */
+    private Thread _server;
+
+}
@@ -0,0 +1,481 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only attack on the keys of a configuration, with an
+ *  unknown plugboard.
+ *
+ *  For each rotor order, every starting setting is first ranked by the
+ *  index of coincidence of the ciphertext decrypted with an empty
+ *  plugboard, which is higher the more the decryption's letter
+ *  frequencies resemble a language's.  The plugboard of each of the best
+ *  few settings is then found by hill-climbing: starting from an empty
+ *  plugboard, a pair of letters is plugged together (unplugging either
+ *  from any other) whenever that improves the decryption's score under
+ *  a table of n-gram log probabilities, until no pair does.
+ *
+ *  During the climb, the conversion made by the rotors alone at each
+ *  position of the ciphertext is remembered, so that a decryption under
+ *  a new plugboard needs no machine, and a move rescores only the n-grams
+ *  covering the positions whose letters it changes.  Rotor orders are
+ *  attacked concurrently as tasks of a ForkJoinPool, each thread reusing
+ *  one machine and its scratch buffers.
+ *  @author Kaley Wong
+ */
+class HillClimb {
+
+    /** An attack on CIPHER, which must consist of letters of CATALOG's
+     *  alphabet, scoring decryptions with NGRAMS, a table for the same
+     *  alphabet. */
+    HillClimb(RotorCatalog catalog, NgramTable ngrams, String cipher) {
+        if (cipher.length() < ngrams.length()) {
+            throw error("ciphertext is shorter than an n-gram");
+        }
+        _catalog = catalog;
+        _ngrams = ngrams;
+        Alphabet alpha = catalog.alphabet();
+        _size = alpha.size();
+        _cipher = new int[cipher.length()];
+        for (int i = 0; i < _cipher.length; i++) {
+            _cipher[i] = KeySearch.toIndex(alpha, cipher.charAt(i));
+        }
+        _windows = _cipher.length - ngrams.length() + 1;
+        _cipherStart = new int[_size + 1];
+        _cipherPositions = new int[_cipher.length];
+        index(_cipher, _cipherStart, _cipherPositions);
+        _numRotors = catalog.numRotors();
+        _orders = KeySearch.rotorOrders(catalog);
+        long settings = 1;
+        try {
+            for (int i = 1; i < _numRotors; i++) {
+                settings = Math.multiplyExact(settings, _size);
+            }
+            Math.multiplyExact(settings, _orders.size());
+        } catch (ArithmeticException excp) {
+            throw error("too many keys to search");
+        }
+        _settingsPerOrder = settings;
+    }
+
+    /** Return the number of keys I rank. */
+    long size() {
+        return _orders.size() * _settingsPerOrder;
+    }
+
+    /** Return the number of candidates evaluated so far: keys ranked and
+     *  plugboards scored. */
+    long candidates() {
+        return _ranked.sum() + _scored.sum();
+    }
+
+    /** Return the COUNT keys, with the plugboards found for them, whose
+     *  decryptions score best, best first, attacking them in POOL.  Each
+     *  is a settings line such as "* B Beta III IV I AXLE (AB) (CD)". */
+    List<String> attack(ForkJoinPool pool, int count) {
+        ArrayList<Result> results = pool.invoke(new Attack(0, _orders.size()));
+        results.sort(Comparator.comparingDouble((Result r) -> -r.score));
+        ArrayList<String> keys = new ArrayList<>();
+        for (int k = 0; k < Math.min(count, results.size()); k++) {
+            keys.add(results.get(k).key);
+        }
+        return keys;
+    }
+
+    /** Set POSITIONS to the indices of TEXT grouped by their letter,
+     *  those with letter x starting at START[x] and ending at
+     *  START[x + 1]. */
+    private void index(int[] text, int[] start, int[] positions) {
+        Arrays.fill(start, 0);
+        for (int c : text) {
+            start[c + 1] += 1;
+        }
+        for (int x = 0; x < _size; x++) {
+            start[x + 1] += start[x];
+        }
+        for (int i = 0; i < text.length; i++) {
+            positions[start[text[i]]++] = i;
+        }
+        System.arraycopy(start, 0, start, 1, _size);
+        start[0] = 0;
+    }
+
+    /** A key and plugboard, and the score of its decryption. */
+    private static class Result {
+        /** A result for the settings line KEY, scoring SCORE. */
+        Result(String key, float score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        /** The settings line, followed by the plugboard pairs. */
+        private final String key;
+        /** The score of the decryption. */
+        private final float score;
+    }
+
+    /** A task attacking a range of rotor orders. */
+    private class Attack extends RecursiveTask<ArrayList<Result>> {
+
+        /** A task attacking rotor orders LO up to HI. */
+        Attack(int lo, int hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected ArrayList<Result> compute() {
+            if (_hi - _lo <= 1) {
+                ArrayList<Result> result = new ArrayList<>();
+                if (_lo < _hi) {
+                    result.add(_scratch.get().attack(_lo));
+                }
+                return result;
+            }
+            int mid = (_lo + _hi) >>> 1;
+            Attack left = new Attack(_lo, mid);
+            left.fork();
+            ArrayList<Result> right = new Attack(mid, _hi).compute();
+            ArrayList<Result> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+
+        /** First and limit of the rotor orders I attack. */
+        private final int _lo, _hi;
+    }
+
+    /** The machine and scratch buffers of one thread, with which it
+     *  attacks one rotor order at a time. */
+    private class Scratch {
+
+        /** Scratch space with a new machine, with an empty plugboard. */
+        Scratch() {
+            _machine = new Machine(_catalog);
+            _machine.setPlugboard(new Permutation("", _catalog.alphabet()));
+        }
+
+        /** Return the best key, with its plugboard, of rotor order
+         *  ORDER. */
+        Result attack(int order) {
+            _machine.insertRotors(_orders.get(order));
+            Arrays.fill(_bestCoincidences, -1);
+            for (long k = 0; k < _settingsPerOrder; k++) {
+                setRotors(k);
+                rank(k, coincidences());
+            }
+            _ranked.add(_settingsPerOrder);
+            Result best = null;
+            for (int r = 0; r < KEEP && _bestCoincidences[r] >= 0; r++) {
+                setRotors(_bestSettings[r]);
+                int[] settings = _settings.clone();
+                float score = climb();
+                if (best == null || score > best.score) {
+                    best = new Result(KeySearch.key(_catalog,
+                                                    _orders.get(order),
+                                                    settings) + pairs(),
+                                      score);
+                }
+            }
+            return best;
+        }
+
+        /** Set my machine's rotors to the settings numbered K. */
+        private void setRotors(long k) {
+            for (int i = _numRotors - 1; i > 0; i--) {
+                _settings[i] = (int) (k % _size);
+                k /= _size;
+            }
+            _machine.setRotors(_settings);
+        }
+
+        /** Return the number of pairs of positions at which my machine
+         *  decrypts the ciphertext, with an empty plugboard, to the same
+         *  letter: the index of coincidence, unnormalized. */
+        private long coincidences() {
+            Arrays.fill(_counts, 0);
+            for (int c : _cipher) {
+                _counts[_machine.convert(c)] += 1;
+            }
+            long result = 0;
+            for (long n : _counts) {
+                result += n * (n - 1);
+            }
+            return result;
+        }
+
+        /** Record that the settings numbered K have COINCIDENCES, keeping
+         *  the KEEP settings with the most in _bestSettings. */
+        private void rank(long k, long coincidences) {
+            int r = KEEP - 1;
+            if (coincidences <= _bestCoincidences[r]) {
+                return;
+            }
+            for (; r > 0 && _bestCoincidences[r - 1] < coincidences; r--) {
+                _bestCoincidences[r] = _bestCoincidences[r - 1];
+                _bestSettings[r] = _bestSettings[r - 1];
+            }
+            _bestCoincidences[r] = coincidences;
+            _bestSettings[r] = k;
+        }
+
+        /** Find a plugboard for my machine's current key by
+         *  hill-climbing, leaving it in _plug, and return the score of its
+         *  decryption. */
+        private float climb() {
+            for (int i = 0; i < _cipher.length; i++) {
+                _machine.advance();
+                _machine.scrambler(_rows[i]);
+            }
+            for (int a = 0; a < _size; a++) {
+                _plug[a] = a;
+            }
+            for (int i = 0; i < _cipher.length; i++) {
+                _mids[i] = _plain[i] = _rows[i][_cipher[i]];
+            }
+            indexMids();
+            float score = _ngrams.score(_plain, 0, _windows);
+            long scored = 0;
+            for (boolean improved = true; improved;) {
+                improved = false;
+                for (int a = 0; a < _size; a++) {
+                    for (int b = a + 1; b < _size; b++) {
+                        scored += 1;
+                        float delta = move(a, b);
+                        if (delta != 0) {
+                            score += delta;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+            _scored.add(scored);
+            return score;
+        }
+
+        /** Plug letters A and B together, unplugging each from any other
+         *  letter, or unplug them if they are plugged together, if that
+         *  improves the score of the decryption by more than MIN_GAIN.
+         *  Return the change in score if the move is made, and otherwise
+         *  0. */
+        private float move(int a, int b) {
+            int pa = _plug[a], pb = _plug[b];
+            if (pa == b) {
+                _plug[a] = a;
+                _plug[b] = b;
+            } else {
+                _plug[pa] = pa;
+                _plug[pb] = pb;
+                _plug[a] = b;
+                _plug[b] = a;
+            }
+            _moved[a] = _moved[b] = _moved[pa] = _moved[pb] = true;
+            _stamp += 1;
+            int changes = gather(a, 0);
+            changes = gather(b, changes);
+            changes = gather(pa, changes);
+            changes = gather(pb, changes);
+            _moved[a] = _moved[b] = _moved[pa] = _moved[pb] = false;
+            int windows = 0;
+            for (int k = 0; k < changes; k++) {
+                int i = _changed[k];
+                if (_newPlain[k] == _plain[i]) {
+                    continue;
+                }
+                int last = Math.min(i, _windows - 1);
+                for (int j = Math.max(0, i - _ngrams.length() + 1);
+                     j <= last; j++) {
+                    if (_windowSeen[j] != _stamp) {
+                        _windowSeen[j] = _stamp;
+                        _affected[windows++] = j;
+                    }
+                }
+            }
+            float delta = 0;
+            for (int w = 0; w < windows; w++) {
+                delta -= _ngrams.score(_plain, _affected[w]);
+            }
+            swapPlain(changes);
+            for (int w = 0; w < windows; w++) {
+                delta += _ngrams.score(_plain, _affected[w]);
+            }
+            if (delta > MIN_GAIN) {
+                for (int k = 0; k < changes; k++) {
+                    _mids[_changed[k]] = _newMids[k];
+                }
+                indexMids();
+                return delta;
+            }
+            swapPlain(changes);
+            _plug[a] = pa;
+            _plug[b] = pb;
+            _plug[pa] = a;
+            _plug[pb] = b;
+            return 0;
+        }
+
+        /** Add to the first CHANGES entries of _changed, _newMids and
+         *  _newPlain those positions, not yet added for this move, whose
+         *  decryption may change because the plugging of letter X, one of
+         *  the letters in _moved, changes, and return the new number of
+         *  entries. */
+        private int gather(int x, int changes) {
+            if (_letterSeen[x] == _stamp) {
+                return changes;
+            }
+            _letterSeen[x] = _stamp;
+            changes = gather(_cipherPositions, _cipherStart[x],
+                             _cipherStart[x + 1], changes);
+            return gather(_midPositions, _midStart[x], _midStart[x + 1],
+                          changes);
+        }
+
+        /** Add to the first CHANGES entries of _changed, _newMids and
+         *  _newPlain the positions POSITIONS[FROM .. TO-1] whose decryption
+         *  changes under _plug, and return the new number of entries. */
+        private int gather(int[] positions, int from, int to, int changes) {
+            for (int k = from; k < to; k++) {
+                int i = positions[k];
+                if (_seen[i] == _stamp) {
+                    continue;
+                }
+                _seen[i] = _stamp;
+                int c = _cipher[i], mid = _mids[i];
+                if (_moved[c]) {
+                    mid = _rows[i][_plug[c]];
+                }
+                int p = _plug[mid];
+                if (mid != _mids[i] || p != _plain[i]) {
+                    _changed[changes] = i;
+                    _newMids[changes] = mid;
+                    _newPlain[changes] = p;
+                    changes += 1;
+                }
+            }
+            return changes;
+        }
+
+        /** Index the positions of the ciphertext by their letter in
+         *  _mids, in _midPositions. */
+        private void indexMids() {
+            index(_mids, _midStart, _midPositions);
+        }
+
+        /** Exchange the first CHANGES letters of _newPlain with those of
+         *  _plain at the positions in _changed. */
+        private void swapPlain(int changes) {
+            for (int k = 0; k < changes; k++) {
+                int i = _changed[k], p = _plain[i];
+                _plain[i] = _newPlain[k];
+                _newPlain[k] = p;
+            }
+        }
+
+        /** Return the plugboard pairs in _plug, each preceded by a blank,
+         *  such as " (AB) (CD)". */
+        private String pairs() {
+            Alphabet alpha = _catalog.alphabet();
+            StringBuilder result = new StringBuilder();
+            for (int a = 0; a < _size; a++) {
+                if (a < _plug[a]) {
+                    result.append(" (").append(alpha.toChar(a))
+                        .append(alpha.toChar(_plug[a])).append(')');
+                }
+            }
+            return result.toString();
+        }
+
+        /** My machine. */
+        private final Machine _machine;
+        /** Current rotor settings, indexed by slot. */
+        private final int[] _settings = new int[_numRotors];
+        /** Number of times each letter occurs in a decryption. */
+        private final long[] _counts = new long[_size];
+        /** The numbers of the settings with the most coincidences, most
+         *  first. */
+        private final long[] _bestSettings = new long[KEEP];
+        /** The coincidences of each of _bestSettings, or -1 if unused. */
+        private final long[] _bestCoincidences = new long[KEEP];
+        /** Conversion of each letter by the rotors alone at each
+         *  position of the ciphertext. */
+        private final int[][] _rows = new int[_cipher.length][_size];
+        /** The plugboard, as the letter to which it takes each letter. */
+        private final int[] _plug = new int[_size];
+        /** The letters whose plugging a move changes. */
+        private final boolean[] _moved = new boolean[_size];
+        /** The decryption, before the output passes through the plugboard,
+         *  at each position. */
+        private final int[] _mids = new int[_cipher.length];
+        /** The decryption at each position. */
+        private final int[] _plain = new int[_cipher.length];
+        /** The positions whose decryption a move changes, in order. */
+        private final int[] _changed = new int[_cipher.length];
+        /** The new value of _mids at each position in _changed. */
+        private final int[] _newMids = new int[_cipher.length];
+        /** The new value of _plain at each position in _changed. */
+        private final int[] _newPlain = new int[_cipher.length];
+        /** The starting positions of the n-grams a move rescores. */
+        private final int[] _affected = new int[_cipher.length];
+        /** The positions of the ciphertext, grouped by their letter in
+         *  _mids, those with letter x starting at _midStart[x]. */
+        private final int[] _midPositions = new int[_cipher.length];
+        /** The start of each letter's positions in _midPositions, and
+         *  their end. */
+        private final int[] _midStart = new int[_size + 1];
+        /** Number of the current move. */
+        private int _stamp;
+        /** The last move that gathered the positions of each letter. */
+        private final int[] _letterSeen = new int[_size];
+        /** The last move that gathered each position. */
+        private final int[] _seen = new int[_cipher.length];
+        /** The last move that rescored the n-gram at each position. */
+        private final int[] _windowSeen = new int[_cipher.length];
+    }
+
+    /** Number of the best-ranked settings of each rotor order whose
+     *  plugboards are climbed. */
+    static final int KEEP = 4;
+
+    /** Least improvement in score for which a move is made, so that
+     *  rounding cannot make a move and its reverse both improvements. */
+    private static final float MIN_GAIN = 1e-3f;
+
+    /** The configuration whose keys I attack. */
+    private final RotorCatalog _catalog;
+    /** Scores of decryptions. */
+    private final NgramTable _ngrams;
+    /** Size of the alphabet. */
+    private final int _size;
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** The ciphertext, as alphabet indices. */
+    private final int[] _cipher;
+    /** Number of n-grams in a decryption. */
+    private final int _windows;
+    /** The positions of the ciphertext, grouped by their letter, those
+     *  with letter x starting at _cipherStart[x]. */
+    private final int[] _cipherPositions;
+    /** The start of each letter's positions in _cipherPositions, and
+     *  their end. */
+    private final int[] _cipherStart;
+    /** The rotor orders attacked, each as the names of the rotors in each
+     *  slot. */
+    private final ArrayList<String[]> _orders;
+    /** Number of starting settings of each rotor order. */
+    private final long _settingsPerOrder;
+    /** Each thread's machine and scratch buffers. */
+    private final ThreadLocal<Scratch> _scratch =
+        ThreadLocal.withInitial(Scratch::new);
+    /** Number of keys ranked. */
+    private final LongAdder _ranked = new LongAdder();
+    /** Number of plugboards scored. */
+    private final LongAdder _scored = new LongAdder();
+
+}
@@ -0,0 +1,262 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static enigma.EnigmaException.*;
+
+/** A search for the keys of a configuration under which a ciphertext
+ *  begins with a known piece of plaintext, its crib.  A key is a rotor
+ *  order (a reflector, distinct fixed rotors, and distinct moving rotors
+ *  from the configuration's catalog) and a starting setting of every
+ *  rotor but the reflector; the plugboard is taken as known.
+ *
+ *  The keys are split into blocks, each a rotor order and the settings
+ *  of every rotor but the rightmost, and ranges of blocks are tested
+ *  concurrently as tasks of a ForkJoinPool, which balances them by
+ *  work-stealing.  Each task reuses one machine, sharing the rotors'
+ *  precomputed tables.  Within a block only the rightmost rotor's setting
+ *  changes, so the machine keeps what it remembers of the conversions by
+ *  the other rotors from key to key.  The ciphertext is converted under
+ *  each key only until its first letter that disagrees with the crib.
+ *  @author Kaley Wong
+ */
+class KeySearch {
+
+    /** A search of the keys of CATALOG, with plugboard PLUGBOARD, under
+     *  which CIPHER begins with CRIB.  CIPHER and CRIB must consist of
+     *  letters of CATALOG's alphabet, and CRIB may be no longer than
+     *  CIPHER. */
+    KeySearch(RotorCatalog catalog, Permutation plugboard, String cipher,
+              String crib) {
+        if (crib.isEmpty() || crib.length() > cipher.length()) {
+            throw error("crib must be non-empty and no longer than the "
+                        + "ciphertext");
+        }
+        _catalog = catalog;
+        _plugboard = plugboard;
+        Alphabet alpha = catalog.alphabet();
+        _size = alpha.size();
+        _cipher = new int[crib.length()];
+        _crib = new int[crib.length()];
+        for (int i = 0; i < crib.length(); i++) {
+            _cipher[i] = toIndex(alpha, cipher.charAt(i));
+            _crib[i] = toIndex(alpha, crib.charAt(i));
+        }
+        _numRotors = catalog.numRotors();
+        _orders = rotorOrders(catalog);
+        long blocks = 1;
+        try {
+            for (int i = 1; i < _numRotors - 1; i++) {
+                blocks = Math.multiplyExact(blocks, _size);
+            }
+            Math.multiplyExact(Math.multiplyExact(blocks, _orders.size()),
+                               _size);
+        } catch (ArithmeticException excp) {
+            throw error("too many keys to search");
+        }
+        _blocksPerOrder = blocks;
+    }
+
+    /** Return the number of keys I search. */
+    long size() {
+        return _orders.size() * _blocksPerOrder * _size;
+    }
+
+    /** Return the keys accepted by my test (see newTest), in the order of
+     *  the catalog's rotors and then of their settings, searching them in
+     *  POOL.  Each is a settings line such as "* B Beta III IV I AXLE",
+     *  followed by any text given by the test. */
+    List<String> search(ForkJoinPool pool) {
+        return pool.invoke(new Search(0, _orders.size() * _blocksPerOrder));
+    }
+
+    /** A task testing the keys in a range of blocks. */
+    private class Search extends RecursiveTask<ArrayList<String>> {
+
+        /** A task testing the keys in blocks LO up to HI. */
+        Search(long lo, long hi) {
+            _lo = lo;
+            _hi = hi;
+        }
+
+        @Override
+        protected ArrayList<String> compute() {
+            if (_hi - _lo <= LEAF_BLOCKS) {
+                return test(_lo, _hi);
+            }
+            long mid = (_lo + _hi) >>> 1;
+            Search left = new Search(_lo, mid);
+            left.fork();
+            ArrayList<String> right = new Search(mid, _hi).compute();
+            ArrayList<String> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+
+        /** First and limit of the blocks I test. */
+        private final long _lo, _hi;
+    }
+
+    /** A test of candidate keys, for use by one task at a time. */
+    interface KeyTest {
+        /** Return the text to follow the settings line of the key with
+         *  which MACHINE is set up, for each way in which the key is
+         *  accepted (so an empty list if it is rejected).  Keys are given
+         *  in blocks that differ only in the setting of the rightmost
+         *  rotor, and FIRST is true iff this key begins a block. */
+        List<String> test(Machine machine, boolean first);
+    }
+
+    /** Return a new test of candidate keys.  By default, a key is
+     *  accepted, with nothing following it, iff my ciphertext begins with
+     *  my crib under it. */
+    KeyTest newTest() {
+        return (machine, first) -> matches(machine) ? MATCH : List.of();
+    }
+
+    /** Return the keys in blocks LO up to HI that are accepted by a test
+     *  from newTest(), each followed by the text given by the test. */
+    private ArrayList<String> test(long lo, long hi) {
+        ArrayList<String> result = new ArrayList<>();
+        KeyTest test = newTest();
+        Machine machine = new Machine(_catalog);
+        machine.setPlugboard(_plugboard);
+        int[] settings = new int[_numRotors];
+        int fast = _numRotors - 1;
+        int current = -1;
+        for (long block = lo; block < hi; block++) {
+            int order = (int) (block / _blocksPerOrder);
+            if (order != current) {
+                machine.insertRotors(_orders.get(order));
+                current = order;
+            }
+            long rest = block % _blocksPerOrder;
+            for (int i = fast - 1; i > 0; i--) {
+                settings[i] = (int) (rest % _size);
+                rest /= _size;
+            }
+            for (int s = 0; s < _size; s++) {
+                settings[fast] = s;
+                machine.setRotors(settings);
+                for (String accepted : test.test(machine, s == 0)) {
+                    result.add(key(_catalog, _orders.get(order), settings)
+                               + accepted);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return true iff MACHINE converts my ciphertext to my crib, stopping
+     *  at the first letter where they differ. */
+    private boolean matches(Machine machine) {
+        for (int i = 0; i < _crib.length; i++) {
+            if (machine.convert(_cipher[i]) != _crib[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the settings line for rotor order ORDER of CATALOG at
+     *  SETTINGS. */
+    static String key(RotorCatalog catalog, String[] order, int[] settings) {
+        Alphabet alpha = catalog.alphabet();
+        StringBuilder result = new StringBuilder("*");
+        for (String name : order) {
+            result.append(' ').append(name);
+        }
+        result.append(' ');
+        for (int i = 1; i < order.length; i++) {
+            result.append(alpha.toChar(settings[i]));
+        }
+        return result.toString();
+    }
+
+    /** Return every rotor order of CATALOG, each as the names of the
+     *  rotors in each slot, in the order of the catalog's rotors. */
+    static ArrayList<String[]> rotorOrders(RotorCatalog catalog) {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        for (Rotor rotor : catalog.rotors()) {
+            if (catalog.find(rotor.name()) == rotor) {
+                rotors.add(rotor);
+            }
+        }
+        ArrayList<String[]> result = new ArrayList<>();
+        addOrders(catalog, new Rotor[catalog.numRotors()], 0, rotors,
+                  result);
+        return result;
+    }
+
+    /** Add to ORDERS every rotor order of CATALOG that begins with the
+     *  rotors in slots before SLOT of ORDER, filling the rest from
+     *  ROTORS. */
+    private static void addOrders(RotorCatalog catalog, Rotor[] order,
+                                  int slot, List<Rotor> rotors,
+                                  List<String[]> orders) {
+        if (slot == order.length) {
+            String[] names = new String[order.length];
+            for (int i = 0; i < order.length; i++) {
+                names[i] = order[i].name();
+            }
+            orders.add(names);
+            return;
+        }
+        int firstMoving = order.length - catalog.numPawls();
+        for (Rotor rotor : rotors) {
+            boolean fits;
+            if (slot == 0) {
+                fits = rotor.reflecting();
+            } else if (slot < firstMoving) {
+                fits = !rotor.rotates() && !rotor.reflecting();
+            } else {
+                fits = rotor.rotates();
+            }
+            for (int i = 0; fits && i < slot; i++) {
+                fits = order[i] != rotor;
+            }
+            if (fits) {
+                order[slot] = rotor;
+                addOrders(catalog, order, slot + 1, rotors, orders);
+            }
+        }
+    }
+
+    /** Return the index of CH in ALPHA, which must contain it. */
+    static int toIndex(Alphabet alpha, char ch) {
+        int index = alpha.toInt(ch);
+        if (index < 0) {
+            throw error("character %c is not in the alphabet", ch);
+        }
+        return index;
+    }
+
+    /** Result of the default test for an accepted key. */
+    private static final List<String> MATCH = List.of("");
+
+    /** Number of blocks that a task tests without splitting. */
+    private static final int LEAF_BLOCKS = 256;
+
+    /** The configuration whose keys I search. */
+    private final RotorCatalog _catalog;
+    /** The known plugboard. */
+    private final Permutation _plugboard;
+    /** Size of the alphabet. */
+    private final int _size;
+    /** Number of rotor slots. */
+    private final int _numRotors;
+    /** The start of the ciphertext, as alphabet indices, as long as
+     *  _crib. */
+    private final int[] _cipher;
+    /** The crib, as alphabet indices. */
+    private final int[] _crib;
+    /** The rotor orders searched, each as the names of the rotors in each
+     *  slot. */
+    private final ArrayList<String[]> _orders;
+    /** Number of blocks of keys with each rotor order. */
+    private final long _blocksPerOrder;
+
+}
@@ -0,0 +1,157 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the KeySearch class.
+ *  @author Kaley Wong
+ */
+public class KeySearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return a catalog of 3-rotor, 2-pawl machines holding naval
+     *  reflectors B and C and moving rotors I to V. */
+    private RotorCatalog smallCatalog() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        String[] notches = { "Q", "E", "V", "J", "Z" };
+        String[] names = { "I", "II", "III", "IV", "V" };
+        for (int i = 0; i < names.length; i += 1) {
+            rotors.add(new MovingRotor(names[i],
+                           new Permutation(NAVALA.get(names[i]), UPPER),
+                           notches[i]));
+        }
+        for (String name : new String[] { "B", "C" }) {
+            rotors.add(new Reflector(name,
+                           new Permutation(NAVALA.get(name), UPPER)));
+        }
+        return new RotorCatalog(UPPER, 3, 2, rotors);
+    }
+
+    @Test
+    public void testFindsKey() {
+        RotorCatalog catalog = smallCatalog();
+        Permutation plugboard = new Permutation("(AQ) (TZ)", UPPER);
+        Machine machine = new Machine(catalog);
+        machine.insertRotors(new String[] { "C", "IV", "II" });
+        machine.setRotors("QD");
+        machine.setPlugboard(plugboard);
+        String cipher = machine.convert("ATTACKATDAWNONTHEEASTERNFRONT");
+        KeySearch search =
+            new KeySearch(catalog, plugboard, cipher, "ATTACKATDAWN");
+        assertEquals(2 * 5 * 4 * 26 * 26, search.size());
+        List<String> keys = search.search(ForkJoinPool.commonPool());
+        assertEquals(List.of("* C IV II QD"), keys);
+    }
+
+    @Test
+    public void testBombe() {
+        RotorCatalog catalog = smallCatalog();
+        String pairs = "(AQ) (BZ) (CT) (DS) (EJ) (FK) (GN) (HL) (MR) (PV)";
+        Machine machine = new Machine(catalog);
+        machine.insertRotors(new String[] { "C", "IV", "II" });
+        machine.setRotors("QD");
+        machine.setPlugboard(new Permutation(pairs, UPPER));
+        String crib = "WEATHERREPORTFORTODAY";
+        String cipher = machine.convert(crib + "NOTHINGTOREPORT");
+        List<String> stops =
+            new Bombe(catalog, cipher, crib).search(ForkJoinPool.commonPool());
+        assertEquals(List.of("* C IV II QD (CT) (DS) (EJ) (FK) (GN) (HL) "
+                             + "(MR) (PV)"), stops);
+    }
+
+    /** Plaintext for the ciphertext-only attack. */
+    private static final String TALE =
+        "ITWASTHEBESTOFTIMESITWASTHEWORSTOFTIMESITWASTHEAGEOFWISDOM"
+        + "ITWASTHEAGEOFFOOLISHNESSITWASTHEEPOCHOFBELIEFITWASTHEEPOCH"
+        + "OFINCREDULITYITWASTHESEASONOFLIGHTITWASTHESEASONOFDARKNESS"
+        + "ITWASTHESPRINGOFHOPEITWASTHEWINTEROFDESPAIRWEHADEVERYTHING"
+        + "BEFOREUSWEHADNOTHINGBEFOREUSWEWEREALLGOINGDIRECTTOHEAVENWE"
+        + "WEREALLGOINGDIRECTTHEOTHERWAYINSHORTTHEPERIODWASSOFARLIKE"
+        + "THEPRESENTPERIODTHATSOMEOFITSNOISIESTAUTHORITIESINSISTEDON"
+        + "ITSBEINGRECEIVEDFORGOODORFOREVILINTHESUPERLATIVEDEGREEOF"
+        + "COMPARISONONLYTHEREWEREAKINGWITHALARGEJAWANDAQUEENWITHA"
+        + "PLAINFACEONTHETHRONEOFENGLANDTHEREWEREAKINGWITHALARGEJAW"
+        + "ANDAQUEENWITHAFAIRFACEONTHETHRONEOFFRANCE";
+
+    /** Return a table of the trigrams of TEXT. */
+    private NgramTable trigrams(String text) {
+        TreeMap<String, Long> counts = new TreeMap<>();
+        for (int i = 0; i + 3 <= text.length(); i += 1) {
+            counts.merge(text.substring(i, i + 3), 1L, Long::sum);
+        }
+        String[] grams = counts.keySet().toArray(new String[0]);
+        long[] numbers = new long[grams.length];
+        int k = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            numbers[k] = entry.getValue();
+            k += 1;
+        }
+        return new NgramTable(UPPER, 3, grams, numbers);
+    }
+
+    @Test
+    public void testHillClimb() {
+        RotorCatalog catalog = smallCatalog();
+        String pairs = "(AQ) (BZ) (CT) (DS) (EJ) (FK)";
+        Machine machine = new Machine(catalog);
+        machine.insertRotors(new String[] { "C", "IV", "II" });
+        machine.setRotors("QD");
+        machine.setPlugboard(new Permutation(pairs, UPPER));
+        HillClimb attack =
+            new HillClimb(catalog, trigrams(TALE), machine.convert(TALE));
+        List<String> keys = attack.attack(ForkJoinPool.commonPool(), 1);
+        assertEquals(List.of("* C IV II QD " + pairs), keys);
+        assertTrue(attack.candidates() > attack.size());
+    }
+
+    @Test
+    public void testNgramZeroCount() {
+        NgramTable table =
+            new NgramTable(UPPER, 3, new String[] { "ABC", "XYZ", "QQQ" },
+                           new long[] { 3, 1, 0 });
+        int[] text = { 16, 16, 16, 25, 25, 25, 0, 1, 2 };
+        float unseen = table.score(text, 3);
+        assertTrue(Float.isFinite(unseen));
+        assertEquals(unseen, table.score(text, 0), 0);
+        assertTrue(table.score(text, 6) > unseen);
+        assertTrue(Float.isFinite(table.score(text, 0, 7)));
+    }
+
+    @Test
+    public void testHillClimbNoRotorOrders() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        for (String name : new String[] { "I", "II", "III", "IV" }) {
+            rotors.add(new MovingRotor(name,
+                           new Permutation(NAVALA.get(name), UPPER), "Q"));
+        }
+        RotorCatalog catalog = new RotorCatalog(UPPER, 4, 2, rotors);
+        HillClimb attack = new HillClimb(catalog, trigrams(TALE), TALE);
+        assertEquals(0, attack.size());
+        assertEquals(List.of(), attack.attack(ForkJoinPool.commonPool(), 5));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBombeCribAgainstItself() {
+        new Bombe(smallCatalog(), "ABC", "XBZ");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCribTooLong() {
+        new KeySearch(smallCatalog(), new Permutation("", UPPER), "ABC",
+                      "ABCD");
+    }
+
+}
@@ -0,0 +1,176 @@
+package enigma;
+
+/** A single-pass lexer for configuration files and settings lines.  It
+ *  splits its text into words separated by whitespace, without regular
+ *  expressions or intermediate strings, and reports errors with the line
+ *  and column of the word at fault.
+ *  @author Kaley Wong
+ */
+class Lexer {
+
+    /** A lexer for TEXT, whose first line is line number LINE of its
+     *  source, or whose line numbers are unknown if LINE is 0. */
+    Lexer(CharSequence text, int line) {
+        _text = text;
+        _length = text.length();
+        _line = line;
+        _wordLine = line;
+        _wordColumn = 1;
+    }
+
+    /** Return true iff nothing but whitespace remains. */
+    boolean atEnd() {
+        start();
+        return _pos == _length;
+    }
+
+    /** Return true iff the next word begins with CH. */
+    boolean startsWith(char ch) {
+        start();
+        return _pos < _length && _text.charAt(_pos) == ch;
+    }
+
+    /** Consume CH and return true iff the next word begins with CH. */
+    boolean accept(char ch) {
+        if (startsWith(ch)) {
+            _pos += 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** Return the next word, reporting its absence as a missing WHAT. */
+    String word(String what) {
+        int begin = wordStart(what);
+        while (inWord()) {
+            _pos += 1;
+        }
+        return _text.subSequence(begin, _pos).toString();
+    }
+
+    /** Return the value of the next word, WHAT, which must be a decimal
+     *  number. */
+    int number(String what) {
+        wordStart(what);
+        long value = 0;
+        do {
+            char ch = _text.charAt(_pos);
+            if (ch < '0' || ch > '9' || value > Integer.MAX_VALUE) {
+                throw error("%s must be a number", what);
+            }
+            value = value * BASE + ch - '0';
+            _pos += 1;
+        } while (inWord());
+        if (value > Integer.MAX_VALUE) {
+            throw error("%s must be a number", what);
+        }
+        return (int) value;
+    }
+
+    /** Append the next word, which must be a sequence of cycles such as
+     *  "(ABC)(DE)", to CYCLES. */
+    void cycles(StringBuilder cycles) {
+        wordStart("cycle");
+        do {
+            int open = _pos;
+            if (_text.charAt(_pos) != '(') {
+                throw error("malformed cycle");
+            }
+            for (_pos += 1; _pos < _length && _text.charAt(_pos) != ')';
+                 _pos += 1) {
+                char ch = _text.charAt(_pos);
+                if (ch == '(' || ch == '*' || Character.isWhitespace(ch)) {
+                    throw error("malformed cycle");
+                }
+            }
+            if (_pos == _length) {
+                throw error("malformed cycle");
+            }
+            _pos += 1;
+            cycles.append(_text, open, _pos);
+        } while (inWord());
+    }
+
+    /** Return the line of the last word read or looked at, or 0 if line
+     *  numbers are unknown. */
+    int line() {
+        return _wordLine;
+    }
+
+    /** Return the column of the last word read or looked at. */
+    int column() {
+        return _wordColumn;
+    }
+
+    /** Return an exception reporting the error MSGFORMAT, formatted with
+     *  ARGUMENTS as for String.format, at the last word read or looked
+     *  at. */
+    EnigmaException error(String msgFormat, Object... arguments) {
+        return errorAt(_wordLine, _wordColumn, msgFormat, arguments);
+    }
+
+    /** Return an exception reporting the error MSGFORMAT, formatted with
+     *  ARGUMENTS as for String.format, at column COLUMN of line LINE, or
+     *  of an unknown line if LINE is 0. */
+    static EnigmaException errorAt(int line, int column, String msgFormat,
+                                   Object... arguments) {
+        String msg = String.format(msgFormat, arguments);
+        if (line > 0) {
+            return new EnigmaException(String.format("%s (line %d, column %d)",
+                                                     msg, line, column));
+        }
+        return new EnigmaException(String.format("%s (column %d)", msg,
+                                                 column));
+    }
+
+    /** Skip whitespace, then record the position of the next word, or of
+     *  the end of my text. */
+    private void start() {
+        while (_pos < _length) {
+            char ch = _text.charAt(_pos);
+            if (ch == '\n') {
+                if (_line > 0) {
+                    _line += 1;
+                }
+                _lineStart = _pos + 1;
+            } else if (!Character.isWhitespace(ch)) {
+                break;
+            }
+            _pos += 1;
+        }
+        _wordLine = _line;
+        _wordColumn = _pos - _lineStart + 1;
+    }
+
+    /** Return true iff _pos is within a word. */
+    private boolean inWord() {
+        return _pos < _length && !Character.isWhitespace(_text.charAt(_pos));
+    }
+
+    /** Start the next word and return its position, reporting its absence
+     *  as a missing WHAT. */
+    private int wordStart(String what) {
+        start();
+        if (_pos == _length) {
+            throw error("missing %s", what);
+        }
+        return _pos;
+    }
+
+    /** Base of numbers. */
+    private static final int BASE = 10;
+
+    /** Text being split into words. */
+    private final CharSequence _text;
+    /** Length of _text. */
+    private final int _length;
+    /** Position of the next unread character of _text. */
+    private int _pos;
+    /** Line number of _pos, or 0 if unknown. */
+    private int _line;
+    /** Position in _text of the start of the line containing _pos. */
+    private int _lineStart;
+    /** Line and column of the last word read or looked at. */
+    private int _wordLine, _wordColumn;
+
+}
@@ -0,0 +1,79 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the Lexer class.
+ *  @author Kaley Wong
+ */
+public class LexerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return the message of the error raised by reading a number from
+     *  LEX, or null if there is none. */
+    private String numberError(Lexer lex) {
+        try {
+            lex.number("count");
+            return null;
+        } catch (EnigmaException excp) {
+            return excp.getMessage();
+        }
+    }
+
+    @Test
+    public void testWords() {
+        Lexer lex = new Lexer("ABC 5\n  3\tI MQ (AB)(CD)\n (EF) Beta", 1);
+        assertEquals("ABC", lex.word("alphabet"));
+        assertEquals(5, lex.number("count"));
+        assertEquals(3, lex.number("count"));
+        assertEquals(2, lex.line());
+        assertEquals(3, lex.column());
+        assertEquals("I", lex.word("name"));
+        assertEquals("MQ", lex.word("type"));
+        StringBuilder cycles = new StringBuilder();
+        while (lex.startsWith('(')) {
+            lex.cycles(cycles);
+        }
+        assertEquals("(AB)(CD)(EF)", cycles.toString());
+        assertEquals("Beta", lex.word("name"));
+        assertTrue(lex.atEnd());
+    }
+
+    @Test
+    public void testSettings() {
+        Lexer lex = new Lexer("*B Beta", 0);
+        assertTrue(lex.accept('*'));
+        assertFalse(lex.accept('*'));
+        assertEquals("B", lex.word("name"));
+        assertEquals("Beta", lex.word("name"));
+        assertFalse(lex.accept('*'));
+        assertTrue(lex.atEnd());
+    }
+
+    @Test
+    public void testErrorPositions() {
+        assertEquals("count must be a number (line 3, column 4)",
+                     numberError(new Lexer("\n\n   1x", 1)));
+        assertEquals("missing count (line 8, column 3)",
+                     numberError(new Lexer("\n  ", 7)));
+        assertEquals("count must be a number (column 2)",
+                     numberError(new Lexer(" 99999999999", 0)));
+        Lexer lex = new Lexer("* (AB) (C*D)", 4);
+        StringBuilder cycles = new StringBuilder();
+        lex.accept('*');
+        lex.cycles(cycles);
+        try {
+            lex.cycles(cycles);
+            fail("accepted a malformed cycle");
+        } catch (EnigmaException excp) {
+            assertEquals("malformed cycle (line 4, column 8)",
+                         excp.getMessage());
+        }
+    }
+
+}
@@ -1,6 +1,13 @@
 package enigma;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import static enigma.EnigmaException.*;
 
@@ -16,12 +23,65 @@ class Machine {
      *  available rotors. */
     Machine(Alphabet alpha, int numRotors, int pawls,
             Collection<Rotor> allRotors) {
-        _alphabet = alpha;
-        numberofpawls = pawls;
-        numberofrotors = numRotors;
-        _allRotors = allRotors.toArray();
-        _rotors = new Rotor[numRotors];
+        this(new RotorCatalog(alpha, numRotors, pawls, allRotors));
+    }
+
+    /** A new Enigma machine as described by CATALOG, which it shares with
+     *  any other machines made from it.  Everything that changes as the
+     *  machine runs (which rotors are in its slots, their settings, and
+     *  the plugboard) belongs to the machine alone. */
+    Machine(RotorCatalog catalog) {
+        this(catalog, new Rotor[catalog.numRotors()],
+             new int[catalog.numRotors()]);
+    }
+
+    /** A machine sharing the rotors and plugboard of MACHINE, with its
+     *  rotors at SETTINGS, but converting independently of it. */
+    private Machine(Machine machine, int[] settings) {
+        this(machine._catalog, machine._rotors.clone(), settings);
+        _plugboard = machine._plugboard;
+    }
+
+    /** A machine as described by CATALOG with ROTORS in its slots at
+     *  SETTINGS. */
+    private Machine(RotorCatalog catalog, Rotor[] rotors, int[] settings) {
+        _catalog = catalog;
+        _alphabet = catalog.alphabet();
+        numberofpawls = catalog.numPawls();
+        numberofrotors = catalog.numRotors();
+        _rotors = rotors;
+        _settings = settings;
+        _firstMoving = numberofrotors - numberofpawls;
+        _size = _alphabet.size();
+        _noNotches = new boolean[_size];
+        _notchAt = new boolean[numberofrotors][];
+        _slow = new int[_size];
+        _slowStamp = new int[_size];
+        _generation = 1;
+        rotorsChanged();
+    }
 
+    /** Return a new machine with my rotors, settings, and plugboard, which
+     *  shares my catalog and tables but converts independently of me. */
+    Machine copy() {
+        return new Machine(this, _settings.clone());
+    }
+
+    /** Return a snapshot of my rotors, their settings, and my
+     *  plugboard. */
+    MachineState state() {
+        return new MachineState(_catalog, _rotors, _settings, _plugboard);
+    }
+
+    /** Restore my rotors, their settings, and my plugboard from STATE,
+     *  which must have been taken from a machine made from my catalog. */
+    void restore(MachineState state) {
+        if (state.catalog() != _catalog) {
+            throw error("machine state is from another configuration");
+        }
+        state.copyInto(_rotors, _settings);
+        _plugboard = state.plugboard();
+        rotorsChanged();
     }
 
     /** Return the number of rotor slots I have. */
@@ -34,37 +94,37 @@ class Machine {
         return numberofpawls;
     }
 
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 setting. */
     void insertRotors(String[] rotors) {
+        if (rotors.length != numberofrotors) {
+            throw new EnigmaException("Wrong number of Rotors");
+        }
+        Rotor[] found = new Rotor[rotors.length];
         for (int i = 0; i < rotors.length; i++) {
-            for (int j = 0; j < _allRotors.length; j++) {
-                String rotorsting = rotors[i].toString();
-                String allrotorsting = ((Rotor) _allRotors[j]).name();
-                if (rotorsting.equals(allrotorsting)) {
-                    _rotors[i] = (Rotor) _allRotors[j];
-                }
+            found[i] = _catalog.find(rotors[i]);
+            if (found[i] == null) {
+                throw error("unknown rotor %s", rotors[i]);
             }
         }
-        if (!_rotors[0].reflecting()) {
+        if (!found[0].reflecting()) {
             throw new EnigmaException("First rotor is not reflector");
         }
-        boolean f = false;
-        for (int i = 0; i < _rotors.length; i++) {
-            if (_rotors[i] == null) {
-                throw new EnigmaException("Rotors do not match");
+        for (int i = 0; i < found.length; i++) {
+            if (found[i].rotates() != (i >= _firstMoving)) {
+                throw error("Moving rotors must fill the rightmost %d slots",
+                            numberofpawls);
             }
         }
-        int counter = 0;
-        for (int i = 0; i < _rotors.length; i++) {
-            if (_rotors[i].rotates()) {
-                counter += 1;
-            }
-        }
-        if (rotors.length != numberofrotors || counter != numberofpawls) {
-            throw new EnigmaException("Wrong number of Rotors");
-        }
+        System.arraycopy(found, 0, _rotors, 0, found.length);
+        Arrays.fill(_settings, 0);
+        rotorsChanged();
     }
 
     /** Set my rotors according to SETTING, which must be a string of
@@ -78,15 +138,57 @@ class Machine {
             if (!_alphabet.contains(setting.charAt(i - 1))) {
                 throw new EnigmaException("Mistyped setting string");
             }
-            _rotors[i].set(setting.charAt(i - 1));
+            _settings[i] = _alphabet.toInt(setting.charAt(i - 1));
+            if (_rotors[i].reflecting() && _settings[i] != 0) {
+                throw error("reflector has only one position");
+            }
         }
         for (int j = 1; j < numRotors(); j++) {
             if (!_alphabet.contains(setting.charAt(j - 1))) {
                 throw new EnigmaException("Initial Positions not in Alphabet");
             }
         }
+        settingsChanged();
     }
 
+    /** Set my rotors to SETTINGS, indexed by slot, each of which must be a
+     *  valid setting of the rotor in its slot.  Unlike setRotors(String),
+     *  this parses nothing, so it suits setting my rotors many times.  The
+     *  conversions remembered for my rotors other than the rightmost are
+     *  kept if none of their settings change, so trying each setting of
+     *  the rightmost rotor in turn reuses them. */
+    void setRotors(int[] settings) {
+        if (settings.length != numberofrotors) {
+            throw error("Wrong Setting Lengths");
+        }
+        int last = numberofrotors - 1;
+        boolean slowChanged = false;
+        for (int i = 0; i < last; i++) {
+            slowChanged |= settings[i] != _settings[i];
+        }
+        System.arraycopy(settings, 0, _settings, 0, numberofrotors);
+        if (slowChanged) {
+            settingsChanged();
+        } else {
+            _armed = armedSlots(_settings);
+        }
+    }
+
+    /** Return the current settings of my rotors, in the form accepted by
+     *  setRotors. */
+    String rotorSettings() {
+        char[] setting = new char[numberofrotors - 1];
+        for (int i = 1; i < numberofrotors; i++) {
+            setting[i - 1] = _alphabet.toChar(_settings[i]);
+        }
+        return new String(setting);
+    }
+
+    /** Store the current settings of my rotors, indexed by slot, in
+     *  SETTINGS. */
+    void rotorSettings(int[] settings) {
+        System.arraycopy(_settings, 0, settings, 0, numberofrotors);
+    }
 
     /** Set the plugboard to PLUGBOARD. */
     void setPlugboard(Permutation plugboard) {
@@ -97,48 +199,353 @@ class Machine {
      *  index in the range 0..alphabet size - 1), after first advancing
       *  *  the machine. */
     int convert(int c) {
-        if (_rotors[3].atNotch()) {
-            _rotors[2].advance();
-            _rotors[3].advance();
+        advance();
+        Rotor fast = _rotors[numberofrotors - 1];
+        int fastSetting = _settings[numberofrotors - 1];
+        int plugboardperm = c;
+        if (!_plugboard.identity()) {
+            plugboardperm = _plugboard.permute(plugboardperm);
         }
-        if (_rotors[4].atNotch()) {
-            _rotors[3].advance();
+        plugboardperm = fast.convertForward(plugboardperm, fastSetting);
+        plugboardperm = convertSlowRotors(plugboardperm);
+        plugboardperm = fast.convertBackward(plugboardperm, fastSetting);
+        if (!_plugboard.identity()) {
+            plugboardperm = _plugboard.permute(plugboardperm);
         }
-        _rotors[numberofrotors - 1].advance();
-        int plugboardperm = _plugboard.permute(c);
-        for (int i = numberofrotors - 1; i >= 0; i--) {
-            plugboardperm = _rotors[i].convertForward(plugboardperm);
+        return plugboardperm;
+    }
+
+    /** Store in SCRAMBLER the conversion of each index by my rotors alone
+     *  at their current settings, leaving out the plugboard and without
+     *  advancing them. */
+    void scrambler(int[] scrambler) {
+        Rotor fast = _rotors[numberofrotors - 1];
+        int fastSetting = _settings[numberofrotors - 1];
+        Arrays.fill(scrambler, 0, _size, -1);
+        for (int c = 0; c < _size; c++) {
+            if (scrambler[c] < 0) {
+                int result = fast.convertForward(c, fastSetting);
+                result = convertSlowRotors(result);
+                result = fast.convertBackward(result, fastSetting);
+                scrambler[c] = result;
+                scrambler[result] = c;
+            }
         }
-        for (int j = 1; j < numberofrotors; j++) {
-            plugboardperm = _rotors[j].convertBackward(plugboardperm);
+    }
+
+    /** Return the result of passing P leftward through every rotor but the
+     *  rightmost, off the reflector, and back out to the rightmost rotor.
+     *  These rotors rarely move, so results are remembered until
+     *  invalidateSlowRotors() is next called. */
+    private int convertSlowRotors(int p) {
+        if (_slowStamp[p] == _generation) {
+            return _slow[p];
+        }
+        int result = p;
+        for (int i = numberofrotors - 2; i >= 0; i--) {
+            result = _rotors[i].convertForward(result, _settings[i]);
+        }
+        for (int j = 1; j < numberofrotors - 1; j++) {
+            result = _rotors[j].convertBackward(result, _settings[j]);
+        }
+        _slow[p] = result;
+        _slowStamp[p] = _generation;
+        return result;
+    }
+
+    /** Advance my rotors as for one keystroke, without converting
+     *  anything.  Unless some notch that matters is engaged, only the
+     *  rightmost rotor moves, which takes time independent of the number
+     *  of rotors. */
+    void advance() {
+        if (_armed > 0) {
+            step(_settings);
+            _armed = armedSlots(_settings);
+            invalidateSlowRotors();
+        } else if (numberofpawls > 0) {
+            int last = numberofrotors - 1;
+            int setting = _settings[last] + 1;
+            setting = setting == _size ? 0 : setting;
+            _settings[last] = setting;
+            _armed = _notchAt[last][setting] ? 1 : 0;
+        }
+    }
+
+    /** Advance SETTINGS, the settings of my rotors, as for one keystroke.
+     *  The rightmost rotor always advances.  Every other moving rotor
+     *  advances if the rotor to its right is at a notch, and, unless it is
+     *  the leftmost moving rotor, if it is at a notch itself.  Return true
+     *  iff a rotor other than the rightmost one advanced. */
+    private boolean step(int[] settings) {
+        int last = numberofrotors - 1;
+        boolean slow = false;
+        for (int i = _firstMoving; i < last; i++) {
+            if (_notchAt[i + 1][settings[i + 1]] | _notchAt[i][settings[i]]) {
+                int setting = settings[i] + 1;
+                settings[i] = setting == _size ? 0 : setting;
+                slow = true;
+            }
+        }
+        if (_firstMoving <= last) {
+            int setting = settings[last] + 1;
+            settings[last] = setting == _size ? 0 : setting;
+        }
+        return slow;
+    }
+
+    /** Return the number of slots whose rotor, at SETTINGS, is at a notch
+     *  that will make some rotor other than the rightmost one advance at
+     *  the next keystroke. */
+    private int armedSlots(int[] settings) {
+        int result = 0;
+        for (int i = _firstMoving + 1; i < numberofrotors; i++) {
+            result += _notchAt[i][settings[i]] ? 1 : 0;
+        }
+        return result;
+    }
+
+    /** Advance my rotors as if STEPS characters had been converted, without
+     *  converting them. */
+    void advanceBy(long steps) {
+        _settings = positionAt(steps);
+        settingsChanged();
+    }
+
+    /** Return the settings my rotors would have, indexed by slot, after
+     *  converting STEPS more characters.  Unless two notches of some moving
+     *  rotor are adjacent, this takes time independent of STEPS. */
+    int[] positionAt(long steps) {
+        return positionAt(_settings, steps);
+    }
+
+    /** Return the settings my rotors would have, indexed by slot, after
+     *  converting STEPS characters from SETTINGS, which is unchanged, as
+     *  for positionAt(STEPS). */
+    private int[] positionAt(int[] settings, long steps) {
+        if (steps < 0) {
+            throw error("cannot step backwards");
+        }
+        int[] result = settings.clone();
+        if (steps == 0 || _firstMoving == numberofrotors) {
+            return result;
+        }
+        boolean adjacent = false;
+        for (int i = _firstMoving; i < numberofrotors; i++) {
+            adjacent |= _rotors[i].adjacentNotches();
+        }
+        if (adjacent) {
+            for (long k = 0; k < steps; k++) {
+                step(result);
+            }
+            return result;
+        }
+        step(result);
+        long remaining = steps - 1;
+        int last = numberofrotors - 1;
+        int windows = Math.max(1, last - _firstMoving);
+        long[] triggers = new long[windows];
+        for (int d = 0; d < windows; d++) {
+            long w = Math.max(0, remaining - d);
+            triggers[d] = _rotors[last].notchesFrom(result[last], w);
+        }
+        for (int i = last - 1; i > _firstMoving; i--) {
+            Rotor rotor = _rotors[i];
+            int start = result[i];
+            for (int d = 0; d < windows - 1; d++) {
+                long w = remaining - d;
+                long moves = rotor.spanOfNonNotches(start, triggers[d]);
+                if (w >= 1 && triggers[d] == triggers[d + 1]
+                    && rotor.atNotch(turn(rotor, start, moves))) {
+                    moves += 1;
+                }
+                triggers[d] = rotor.notchesFrom(start, moves);
+                if (d == 0) {
+                    result[i] = turn(rotor, start, moves);
+                }
+            }
+            windows -= 1;
+        }
+        if (_firstMoving < last) {
+            Rotor rotor = _rotors[_firstMoving];
+            result[_firstMoving] =
+                turn(rotor, result[_firstMoving], triggers[0]);
+        }
+        result[last] = turn(_rotors[last], result[last], remaining);
+        return result;
+    }
+
+    /** Return the setting of ROTOR after advancing COUNT times from
+     *  SETTING. */
+    private static int turn(Rotor rotor, int setting, long count) {
+        return rotor.wrap(setting + (int) (count % rotor.size()));
+    }
+
+    /** Note that the rotors in my slots, or their settings, may have
+     *  changed arbitrarily: rebuild _notchAt and _armed, and forget the
+     *  conversions remembered by convertSlowRotors. */
+    private void rotorsChanged() {
+        for (int i = 0; i < numberofrotors; i++) {
+            boolean[] table = null;
+            if (i > _firstMoving && _rotors[i] != null) {
+                table = _rotors[i].notchTable();
+            }
+            _notchAt[i] = table == null ? _noNotches : table;
+        }
+        settingsChanged();
+    }
+
+    /** Note that the settings of my rotors may have changed arbitrarily:
+     *  rebuild _armed, and forget the conversions remembered by
+     *  convertSlowRotors. */
+    private void settingsChanged() {
+        _armed = armedSlots(_settings);
+        invalidateSlowRotors();
+    }
+
+    /** Forget the conversions remembered by convertSlowRotors, because a
+     *  rotor other than the rightmost one may have changed. */
+    private void invalidateSlowRotors() {
+        _generation += 1;
+        if (_generation == 0) {
+            Arrays.fill(_slowStamp, 0);
+            _generation = 1;
         }
-        plugboardperm = _plugboard.permute(plugboardperm);
-        return plugboardperm;
     }
 
     /** Returns the encoding/decoding of MSG, updating the state of
        the rotors accordingly. */
     String convert(String msg) {
-        String message = "";
-        for (int i = 0; i < msg.length(); i++) {
-            int msgint = _alphabet.toInt(msg.charAt(i));
-            char msgchar = _alphabet.toChar(convert(msgint));
-            message += msgchar;
+        char[] message = msg.toCharArray();
+        convert(message, 0, message.length, message, 0);
+        return new String(message);
+    }
+
+    /** Store the encoding/decoding of the LEN characters of IN starting at
+     *  OFF into OUT starting at OUTOFF, updating the state of the rotors
+     *  accordingly.  IN and OUT may be the same array. */
+    void convert(char[] in, int off, int len, char[] out, int outOff) {
+        for (int i = 0; i < len; i++) {
+            out[outOff + i] = _alphabet.toChar(convert(toIndex(in[off + i])));
         }
-        return message;
     }
 
+    /** Store the encoding/decoding of the LEN characters of IN starting at
+     *  OFF into OUT starting at OUTOFF, as for convert(IN, OFF, LEN, OUT,
+     *  OUTOFF), but converting pieces of a long message concurrently in
+     *  POOL.  Each piece is converted by a separate machine whose rotors
+     *  are jumped ahead from the start of the previous piece.  IN and OUT
+     *  may be the same array.  If an error occurs, the resulting state of
+     *  my rotors is unspecified. */
+    void convert(char[] in, int off, int len, char[] out, int outOff,
+                 ForkJoinPool pool) {
+        if (len < 2 * PARALLEL_CHUNK) {
+            convert(in, off, len, out, outOff);
+            return;
+        }
+        ArrayList<ForkJoinTask<?>> pieces = new ArrayList<>();
+        int[] settings = _settings;
+        for (int start = 0; start < len; start += PARALLEL_CHUNK) {
+            int begin = start, size = Math.min(PARALLEL_CHUNK, len - start);
+            Machine piece = new Machine(this, settings.clone());
+            pieces.add(pool.submit(() ->
+                piece.convert(in, off + begin, size, out, outOff + begin)));
+            settings = positionAt(settings, size);
+        }
+        for (ForkJoinTask<?> piece : pieces) {
+            piece.join();
+        }
+        _settings = settings;
+        settingsChanged();
+    }
+
+    /** Encode/decode the remaining characters of IN into OUT, advancing the
+     *  positions of both buffers, and updating the state of the rotors
+     *  accordingly.  OUT must have room for all of them. */
+    void convert(CharBuffer in, CharBuffer out) {
+        int len = in.remaining();
+        if (out.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        if (in.hasArray() && out.hasArray()) {
+            convert(in.array(), in.arrayOffset() + in.position(), len,
+                    out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + len);
+        } else {
+            while (in.hasRemaining()) {
+                out.put(_alphabet.toChar(convert(toIndex(in.get()))));
+            }
+        }
+    }
+
+    /** Encode/decode the remaining bytes of IN into OUT, advancing the
+     *  positions of both buffers, and updating the state of the rotors
+     *  accordingly.  Each byte is one ISO-8859-1 character, so my alphabet
+     *  must lie in that character set.  OUT must have room for all of
+     *  them. */
+    void convert(ByteBuffer in, ByteBuffer out) {
+        if (out.remaining() < in.remaining()) {
+            throw new BufferOverflowException();
+        }
+        while (in.hasRemaining()) {
+            char result =
+                _alphabet.toChar(convert(toIndex((char) (in.get() & 0xff))));
+            if (result > 0xff) {
+                throw error("%c does not fit in a byte", result);
+            }
+            out.put((byte) result);
+        }
+    }
+
+    /** Return the index of CH in my alphabet, which must contain it. */
+    private int toIndex(char ch) {
+        int index = _alphabet.toInt(ch);
+        if (index < 0) {
+            throw error("character %c is not in the alphabet", ch);
+        }
+        return index;
+    }
+
+    /** Number of characters converted by each task of a parallel
+     *  conversion. */
+    static final int PARALLEL_CHUNK = 1 << 13;
+
     /** Common alphabet of my rotors. */
     private final Alphabet _alphabet;
     /** Number of rotors this machine has.*/
-    private int numberofrotors;
+    private final int numberofrotors;
     /** number of pawls this mahcine has. */
-    private int numberofpawls;
-    /** collection of all rotors.*/
-    private Object[] _allRotors;
+    private final int numberofpawls;
+    /** Description of this machine and its available rotors. */
+    private final RotorCatalog _catalog;
     /** Array of rotors that the machine uses.*/
-    private Rotor[] _rotors;
+    private final Rotor[] _rotors;
+    /** Current setting of the rotor in each slot. */
+    private int[] _settings;
+    /** Slot of my leftmost moving rotor. */
+    private final int _firstMoving;
+    /** Size of my alphabet, and so the number of settings of each
+     *  rotor. */
+    private final int _size;
+    /** Notch table of the rotor in each slot, as for Rotor.notchTable(),
+     *  except that it is _noNotches for every slot whose notches cannot
+     *  move a rotor: those of the fixed rotors and the leftmost moving
+     *  one. */
+    private final boolean[][] _notchAt;
+    /** A notch table with no notches. */
+    private final boolean[] _noNotches;
+    /** Number of slots at which _notchAt is true for the current
+     *  settings. */
+    private int _armed;
     /** Machines plugboard.*/
     private Permutation _plugboard;
+    /** Conversion by convertSlowRotors of each index, valid where the
+     *  corresponding entry of _slowStamp equals _generation. */
+    private int[] _slow;
+    /** Value of _generation when each entry of _slow was computed. */
+    private int[] _slowStamp;
+    /** Number of times the rotors left of the rightmost one have changed
+     *  (modulo wraparound), starting from 1. */
+    private int _generation;
 }
 
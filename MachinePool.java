@@ -0,0 +1,155 @@
+package enigma;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import static enigma.EnigmaException.*;
+
+/** A bounded, thread-safe pool of ready-made machines sharing one
+ *  RotorCatalog, keyed by their rotors, initial settings, and plugboard.
+ *  Setting up a machine for a new key parses its plugboard once; further
+ *  machines for the same key are cheap copies of that first one, and
+ *  machines given back are reset and handed out again.
+ *  @author Kaley Wong
+ */
+class MachinePool {
+
+    /** A pool of machines described by CATALOG that keeps at most
+     *  CAPACITY idle machines, and set-ups for at most CAPACITY keys. */
+    MachinePool(RotorCatalog catalog, int capacity) {
+        if (capacity <= 0) {
+            throw error("pool capacity must be positive");
+        }
+        _catalog = catalog;
+        _capacity = capacity;
+        _entries = new LinkedHashMap<>(capacity, LOAD_FACTOR, true);
+    }
+
+    /** Return a machine, for the exclusive use of the caller until it is
+     *  given back, with the rotors named ROTORS at SETTING and plugboard
+     *  cycles PLUGBOARD, as for Machine.insertRotors, Machine.setRotors,
+     *  and Machine.setPlugboard. */
+    Machine borrow(String[] rotors, String setting, String plugboard) {
+        String key = String.join(" ", rotors) + " " + setting
+            + " " + plugboard;
+        Entry entry;
+        synchronized (this) {
+            entry = _entries.get(key);
+            if (entry != null && !entry._machines.isEmpty()) {
+                _idle -= 1;
+                return lend(entry._machines.pop(), entry);
+            }
+        }
+        if (entry == null) {
+            Machine prototype = new Machine(_catalog);
+            prototype.insertRotors(rotors);
+            prototype.setRotors(setting);
+            prototype.setPlugboard(
+                new Permutation(plugboard, _catalog.alphabet()));
+            entry = new Entry(key, setting, prototype);
+        }
+        Machine machine = entry._prototype.copy();
+        synchronized (this) {
+            Entry current = _entries.putIfAbsent(key, entry);
+            if (current != null) {
+                entry = current;
+            } else if (_entries.size() > _capacity) {
+                evictEldest();
+            }
+            return lend(machine, entry);
+        }
+    }
+
+    /** Return MACHINE, which must have been borrowed from me and whose
+     *  rotors and plugboard must not have been changed since, to the
+     *  pool. */
+    synchronized void giveBack(Machine machine) {
+        Entry entry = _borrowed.remove(machine);
+        if (entry == null) {
+            throw error("machine was not borrowed from this pool");
+        }
+        if (_entries.get(entry._key) != entry) {
+            return;
+        }
+        if (_idle == _capacity) {
+            dropIdle();
+        }
+        machine.setRotors(entry._setting);
+        entry._machines.push(machine);
+        _idle += 1;
+    }
+
+    /** Return the catalog describing my machines. */
+    RotorCatalog catalog() {
+        return _catalog;
+    }
+
+    /** Return the number of idle machines I hold. */
+    synchronized int idle() {
+        return _idle;
+    }
+
+    /** Record that MACHINE, made for ENTRY, has been borrowed, and return
+     *  it. */
+    private Machine lend(Machine machine, Entry entry) {
+        _borrowed.put(machine, entry);
+        return machine;
+    }
+
+    /** Forget the least recently used key, with its idle machines. */
+    private void evictEldest() {
+        Iterator<Entry> eldest = _entries.values().iterator();
+        _idle -= eldest.next()._machines.size();
+        eldest.remove();
+    }
+
+    /** Discard one idle machine of the least recently used key that has
+     *  one. */
+    private void dropIdle() {
+        for (Entry entry : _entries.values()) {
+            if (!entry._machines.isEmpty()) {
+                entry._machines.removeLast();
+                _idle -= 1;
+                return;
+            }
+        }
+    }
+
+    /** The set-up and idle machines for one key. */
+    private static class Entry {
+        /** An entry for KEY, whose machines are copied from PROTOTYPE and
+         *  start at SETTING. */
+        Entry(String key, String setting, Machine prototype) {
+            _key = key;
+            _setting = setting;
+            _prototype = prototype;
+        }
+
+        /** My key in _entries. */
+        private final String _key;
+        /** Initial rotor settings of my machines. */
+        private final String _setting;
+        /** Machine set up for my key, which is never lent. */
+        private final Machine _prototype;
+        /** Idle machines, most recently given back first. */
+        private final ArrayDeque<Machine> _machines = new ArrayDeque<>();
+    }
+
+    /** Load factor of _entries. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Description of my machines. */
+    private final RotorCatalog _catalog;
+    /** Largest number of idle machines and of keys I keep. */
+    private final int _capacity;
+    /** Entry for each key, least recently used first. */
+    private final LinkedHashMap<String, Entry> _entries;
+    /** Entry for each machine that is currently borrowed. */
+    private final IdentityHashMap<Machine, Entry> _borrowed =
+        new IdentityHashMap<>();
+    /** Total number of idle machines in _entries. */
+    private int _idle;
+
+}
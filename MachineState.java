@@ -0,0 +1,46 @@
+package enigma;
+
+/** An immutable snapshot of the state of a Machine: the rotors in its
+ *  slots, their settings, and its plugboard.  A state may be restored
+ *  into any machine made from the same RotorCatalog.
+ *  @author Kaley Wong
+ */
+class MachineState {
+
+    /** The state of a machine described by CATALOG with ROTORS in its
+     *  slots at SETTINGS, and plugboard PLUGBOARD. */
+    MachineState(RotorCatalog catalog, Rotor[] rotors, int[] settings,
+                 Permutation plugboard) {
+        _catalog = catalog;
+        _rotors = rotors.clone();
+        _settings = settings.clone();
+        _plugboard = plugboard;
+    }
+
+    /** Return the catalog of the machine I was taken from. */
+    RotorCatalog catalog() {
+        return _catalog;
+    }
+
+    /** Copy the rotors in my slots into ROTORS, and their settings into
+     *  SETTINGS. */
+    void copyInto(Rotor[] rotors, int[] settings) {
+        System.arraycopy(_rotors, 0, rotors, 0, _rotors.length);
+        System.arraycopy(_settings, 0, settings, 0, _settings.length);
+    }
+
+    /** Return my plugboard. */
+    Permutation plugboard() {
+        return _plugboard;
+    }
+
+    /** Catalog of the machine I was taken from. */
+    private final RotorCatalog _catalog;
+    /** Rotor in each slot. */
+    private final Rotor[] _rotors;
+    /** Setting of the rotor in each slot. */
+    private final int[] _settings;
+    /** Plugboard. */
+    private final Permutation _plugboard;
+
+}
@@ -0,0 +1,382 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Machine class.
+ *  @author Kaley Wong
+ */
+public class MachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Notches of the naval moving rotors. */
+    private static final String[][] NOTCHES = {
+        { "I", "Q" }, { "II", "E" }, { "III", "V" }, { "IV", "J" },
+        { "V", "Z" }, { "VI", "ZM" }, { "VII", "ZM" }, { "VIII", "ZM" },
+    };
+
+    /** Return a 5-rotor, 3-pawl machine holding the naval rotors. */
+    private Machine navalMachine() {
+        return new Machine(navalCatalog());
+    }
+
+    /** Return a catalog of 5-rotor, 3-pawl machines holding the naval
+     *  rotors. */
+    private RotorCatalog navalCatalog() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        for (String[] notch : NOTCHES) {
+            rotors.add(new MovingRotor(notch[0],
+                           new Permutation(NAVALA.get(notch[0]), UPPER),
+                           notch[1]));
+        }
+        for (String name : new String[] { "Beta", "Gamma" }) {
+            rotors.add(new FixedRotor(name,
+                           new Permutation(NAVALA.get(name), UPPER)));
+        }
+        for (String name : new String[] { "B", "C" }) {
+            rotors.add(new Reflector(name,
+                           new Permutation(NAVALA.get(name), UPPER)));
+        }
+        return new RotorCatalog(UPPER, 5, 3, rotors);
+    }
+
+    /** Return navalMachine() with rotors ROTORS at SETTING and plugboard
+     *  PLUGBOARD. */
+    private Machine setUp(String[] rotors, String setting, String plugboard) {
+        Machine machine = navalMachine();
+        machine.insertRotors(rotors);
+        machine.setRotors(setting);
+        machine.setPlugboard(new Permutation(plugboard, UPPER));
+        return machine;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testConvertMessage() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine machine = setUp(rotors, "AXLE", "(YF) (ZH)");
+        assertEquals("SSOPZISSZOULIERZIAWLTHA",
+                     machine.convert("HYIHLBKOMLIUYDCMPPSFSZW"));
+        machine = setUp(rotors, "AXLE", "(YF) (ZH)");
+        assertEquals("HYIHLBKOMLIUYDCMPPSFSZW",
+                     machine.convert("SSOPZISSZOULIERZIAWLTHA"));
+    }
+
+    @Test
+    public void testDoubleStep() {
+        String[] rotors = { "B", "Beta", "I", "II", "III" };
+        Machine machine = setUp(rotors, "AADU", "");
+        assertEquals("EQIBM", machine.convert("AAAAA"));
+        assertEquals(setUp(rotors, "ABFZ", "").convert("HELLO"),
+                     machine.convert("HELLO"));
+        machine.setRotors("AADU");
+        assertEquals("EQIBMGFJBWZFCKPFMGBXQCIVIBBRNC",
+                     machine.convert("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA"));
+    }
+
+    @Test
+    public void testSetRotorsFastOnly() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine machine = setUp(rotors, "AXIA", "(YF) (ZH)");
+        int[] settings = { 0, 0, 23, 8, 0 };
+        String msg = "HYIHLBKOMLIUYDCMPPSFSZWHYIH";
+        for (int s = 0; s < UPPER.size(); s += 1) {
+            settings[4] = s;
+            machine.setRotors(settings);
+            Machine expected = setUp(rotors, "AXI" + UPPER.toChar(s),
+                                     "(YF) (ZH)");
+            assertEquals(expected.convert(msg), machine.convert(msg));
+        }
+    }
+
+    @Test
+    public void testBulkConvert() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        String plain = "HYIHLBKOMLIUYDCMPPSFSZW";
+        String cipher = "SSOPZISSZOULIERZIAWLTHA";
+        char[] out = new char[plain.length() + 2];
+        setUp(rotors, "AXLE", "(YF) (ZH)")
+            .convert(("x" + plain).toCharArray(), 1, plain.length(), out, 2);
+        assertEquals(cipher, new String(out, 2, plain.length()));
+
+        CharBuffer chars = CharBuffer.allocate(plain.length());
+        setUp(rotors, "AXLE", "(YF) (ZH)")
+            .convert(CharBuffer.wrap(plain), chars);
+        assertEquals(0, chars.remaining());
+        assertEquals(cipher, new String(chars.array()));
+
+        ByteBuffer bytes = ByteBuffer.wrap(plain.getBytes());
+        setUp(rotors, "AXLE", "(YF) (ZH)").convert(bytes.duplicate(), bytes);
+        assertEquals(cipher, new String(bytes.array()));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testConvertNotInAlphabet() {
+        setUp(new String[] { "B", "Beta", "III", "IV", "I" }, "AXLE", "")
+            .convert("AB-C");
+    }
+
+    @Test
+    public void testUnknownRotor() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine machine = setUp(rotors, "AXLE", "(YF) (ZH)");
+        String[][] bad = {
+            { "X", "Beta", "III", "IV", "I" },
+            { "B", "Beta", "III", "IX", "I" },
+        };
+        String[] unknown = { "X", "IX" };
+        for (int k = 0; k < bad.length; k += 1) {
+            try {
+                machine.insertRotors(bad[k]);
+                fail("inserted unknown rotor " + unknown[k]);
+            } catch (EnigmaException excp) {
+                assertEquals("unknown rotor " + unknown[k], excp.getMessage());
+            }
+        }
+        machine.setRotors("AXLE");
+        assertEquals("SSOPZISSZOULIERZIAWLTHA",
+                     machine.convert("HYIHLBKOMLIUYDCMPPSFSZW"));
+    }
+
+    @Test
+    public void testAdvanceBy() {
+        String[] rotors = { "B", "Beta", "I", "II", "III" };
+        Machine stepped = setUp(rotors, "AADT", "(AB)");
+        Machine jumped = setUp(rotors, "AADT", "(AB)");
+        for (int k = 0; k < 2000; k += 1) {
+            int[] settings = jumped.positionAt(k);
+            String expected = stepped.rotorSettings();
+            for (int i = 1; i < settings.length; i += 1) {
+                assertEquals(expected.charAt(i - 1),
+                             UPPER.toChar(settings[i]));
+            }
+            stepped.convert(0);
+        }
+        jumped.advanceBy(2000);
+        assertEquals(stepped.rotorSettings(), jumped.rotorSettings());
+        assertEquals(stepped.convert("HELLOWORLD"),
+                     jumped.convert("HELLOWORLD"));
+    }
+
+    @Test
+    public void testAdvanceByLarge() {
+        String[] rotors = { "B", "Beta", "I", "II", "III" };
+        Machine machine = setUp(rotors, "AAAA", "");
+        machine.advanceBy(3);
+        String after = machine.rotorSettings();
+        machine.setRotors("AAAA");
+        machine.advanceBy(3 + 26 * 25 * 26 * 1000000007L);
+        assertEquals(after, machine.rotorSettings());
+
+        rotors = new String[] { "C", "Gamma", "VI", "IV", "VIII" };
+        machine = setUp(rotors, "QRZM", "");
+        machine.advanceBy(123456789012L);
+        machine.advanceBy(987654321098L);
+        String twice = machine.rotorSettings();
+        machine.setRotors("QRZM");
+        machine.advanceBy(123456789012L + 987654321098L);
+        assertEquals(twice, machine.rotorSettings());
+    }
+
+    @Test
+    public void testParallelConvert() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        char[] msg = new char[5 * Machine.PARALLEL_CHUNK + 17];
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = UPPER.toChar((i * 7 + i / 26) % 26);
+        }
+        Machine sequential = setUp(rotors, "AXLE", "(YF) (ZH)");
+        Machine parallel = setUp(rotors, "AXLE", "(YF) (ZH)");
+        char[] expected = new char[msg.length];
+        char[] actual = new char[msg.length];
+        sequential.convert(msg, 0, msg.length, expected, 0);
+        parallel.convert(msg, 0, msg.length, actual, 0,
+                         ForkJoinPool.commonPool());
+        assertArrayEquals(expected, actual);
+        assertEquals(sequential.rotorSettings(), parallel.rotorSettings());
+        assertEquals(sequential.convert("HELLO"), parallel.convert("HELLO"));
+    }
+
+    @Test
+    public void testParallelConvertAdjacentNotches() {
+        ArrayList<Rotor> all = new ArrayList<>(navalCatalog().rotors());
+        all.add(new MovingRotor("X", new Permutation(NAVALA.get("I"), UPPER),
+                                "QR"));
+        all.add(new MovingRotor("Y",
+                                new Permutation(NAVALA.get("II"), UPPER),
+                                "EFM"));
+        RotorCatalog catalog = new RotorCatalog(UPPER, 5, 3, all);
+        char[] msg = new char[(1 << 16) + 3 * Machine.PARALLEL_CHUNK + 5];
+        for (int i = 0; i < msg.length; i += 1) {
+            msg[i] = UPPER.toChar((i * 11 + i / 26) % 26);
+        }
+        Machine sequential = new Machine(catalog);
+        sequential.insertRotors(new String[] { "B", "Beta", "X", "Y", "I" });
+        sequential.setRotors("AQEQ");
+        sequential.setPlugboard(new Permutation("(YF) (ZH)", UPPER));
+        Machine parallel = sequential.copy();
+        char[] expected = new char[msg.length];
+        char[] actual = new char[msg.length];
+        sequential.convert(msg, 0, msg.length, expected, 0);
+        parallel.convert(msg, 0, msg.length, actual, 0,
+                         ForkJoinPool.commonPool());
+        assertArrayEquals(expected, actual);
+        assertEquals(sequential.rotorSettings(), parallel.rotorSettings());
+        assertEquals(sequential.convert("HELLO"), parallel.convert("HELLO"));
+    }
+
+    @Test
+    public void testManyPawls() {
+        RotorCatalog catalog =
+            new RotorCatalog(UPPER, 9, 8, navalCatalog().rotors());
+        String[] names = { "B", "VI", "I", "VII", "II", "VIII", "III", "IV",
+                           "V" };
+        Machine machine = new Machine(catalog);
+        machine.insertRotors(names);
+        machine.setRotors("AYQZEMUY");
+        machine.setPlugboard(new Permutation("", UPPER));
+        Machine jumped = machine.copy();
+        Rotor[] rotors = new Rotor[names.length];
+        for (int i = 0; i < names.length; i += 1) {
+            rotors[i] = catalog.find(names[i]);
+        }
+        int[] expected = machine.positionAt(0);
+        for (int k = 0; k < 20000; k += 1) {
+            boolean[] moves = new boolean[rotors.length];
+            moves[rotors.length - 1] = true;
+            for (int i = 1; i < rotors.length - 1; i += 1) {
+                moves[i] = rotors[i + 1].atNotch(expected[i + 1])
+                    || (i > 1 && rotors[i].atNotch(expected[i]));
+            }
+            for (int i = 1; i < rotors.length; i += 1) {
+                if (moves[i]) {
+                    expected[i] = (expected[i] + 1) % UPPER.size();
+                }
+            }
+            machine.convert(0);
+            assertArrayEquals(expected, machine.positionAt(0));
+        }
+        jumped.advanceBy(20000);
+        assertEquals(machine.rotorSettings(), jumped.rotorSettings());
+        assertEquals(machine.convert("HELLOWORLD"),
+                     jumped.convert("HELLOWORLD"));
+    }
+
+    @Test
+    public void testCopy() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine machine = setUp(rotors, "AXLE", "(YF) (ZH)");
+        machine.convert("HYIHLB");
+        Machine copy = machine.copy();
+        assertEquals(machine.rotorSettings(), copy.rotorSettings());
+        assertEquals("SSZOULIERZIAWLTHA", copy.convert("KOMLIUYDCMPPSFSZW"));
+        assertEquals("SSZOULIERZIAWLTHA",
+                     machine.convert("KOMLIUYDCMPPSFSZW"));
+    }
+
+    @Test
+    public void testRestoreState() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        Machine machine = setUp(rotors, "AXLE", "(YF) (ZH)");
+        MachineState state = machine.state();
+        Machine other = machine.copy();
+        other.insertRotors(new String[] { "C", "Gamma", "I", "II", "III" });
+        other.setRotors("ZZZZ");
+        other.setPlugboard(new Permutation("(AB)", UPPER));
+        other.convert("QWERTY");
+        other.restore(state);
+        assertEquals("AXLE", other.rotorSettings());
+        assertEquals("SSOPZISSZOULIERZIAWLTHA",
+                     other.convert("HYIHLBKOMLIUYDCMPPSFSZW"));
+        machine.restore(state);
+        assertEquals("SSOPZISSZOULIERZIAWLTHA",
+                     machine.convert("HYIHLBKOMLIUYDCMPPSFSZW"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testRestoreOtherCatalog() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        setUp(rotors, "AXLE", "").restore(setUp(rotors, "AXLE", "").state());
+    }
+
+    @Test
+    public void testNormalizeSettings() {
+        String line = "* B Beta III IV I AXLE (YF) (ZH)";
+        assertSame(line, SettingsCache.normalize(line));
+        assertEquals(line,
+                     SettingsCache.normalize(" *  B Beta\tIII IV I AXLE "
+                                             + "(YF)   (ZH)\r"));
+    }
+
+    @Test
+    public void testLazyCatalog() {
+        ArrayList<RotorDefinition> definitions = new ArrayList<>();
+        definitions.add(new RotorDefinition(RotorDefinition.MOVING, "I", "Q",
+                                            NAVALA.get("I"), UPPER, 3, 1));
+        definitions.add(new RotorDefinition(RotorDefinition.FIXED, "Bad", "",
+                                            "(AA)", UPPER, 4, 1));
+        definitions.add(new RotorDefinition(RotorDefinition.REFLECTOR, "B",
+                                            "", NAVALA.get("B"), UPPER, 5, 1));
+        RotorCatalog catalog = new RotorCatalog(UPPER, 2, 1, definitions);
+        Rotor rotor = catalog.find("I");
+        assertSame(rotor, catalog.find("I"));
+        assertTrue(rotor.rotates());
+        assertTrue(rotor.atNotch(UPPER.toInt('Q')));
+        assertTrue(catalog.find("B").reflecting());
+        assertNull(catalog.find("II"));
+        try {
+            catalog.find("Bad");
+            fail("built a rotor with a bad cycle");
+        } catch (EnigmaException excp) {
+            assertTrue(excp.getMessage().endsWith("(line 4, column 1)"));
+        }
+    }
+
+    @Test
+    public void testPool() {
+        String[] rotors = { "B", "Beta", "III", "IV", "I" };
+        MachinePool pool = new MachinePool(navalCatalog(), 2);
+        Machine first = pool.borrow(rotors, "AXLE", "(YF) (ZH)");
+        Machine second = pool.borrow(rotors, "AXLE", "(YF) (ZH)");
+        assertNotSame(first, second);
+        assertEquals("SSOPZISSZOULIERZIAWLTHA",
+                     first.convert("HYIHLBKOMLIUYDCMPPSFSZW"));
+        pool.giveBack(first);
+        assertEquals(1, pool.idle());
+        Machine again = pool.borrow(rotors, "AXLE", "(YF) (ZH)");
+        assertSame(first, again);
+        assertEquals("AXLE", again.rotorSettings());
+        assertEquals("SSOPZISSZOULIERZIAWLTHA",
+                     second.convert("HYIHLBKOMLIUYDCMPPSFSZW"));
+        pool.giveBack(second);
+        pool.giveBack(again);
+        pool.giveBack(pool.borrow(rotors, "AAAA", ""));
+        assertEquals(2, pool.idle());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testPoolGiveBackTwice() {
+        MachinePool pool = new MachinePool(navalCatalog(), 2);
+        Machine machine =
+            pool.borrow(new String[] { "B", "Beta", "III", "IV", "I" },
+                        "AXLE", "");
+        pool.giveBack(machine);
+        pool.giveBack(machine);
+    }
+
+}
@@ -1,15 +1,37 @@
 package enigma;
 
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.Reader;
 
+import java.net.SocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.NoSuchElementException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import static enigma.EnigmaException.*;
+import static java.nio.file.StandardOpenOption.*;
 
 /** Enigma simulator.
  *  @author Kaley Wong
@@ -24,7 +46,50 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1.
+     *
+     *  The file names may be preceded by options.  --mmap, when both an
+     *  input and an output file are named and the alphabet is ASCII,
+     *  converts the input by memory-mapping both files.  Input holding
+     *  anything but ASCII is instead decoded and converted as it would
+     *  be without --mmap.  --parallel
+     *  converts the sections that follow different settings lines, and
+     *  long message lines, on all available processors.
+     *
+     *  With the option --serve ADDRESS, the remaining arguments name one
+     *  or more configuration files, and messages are instead converted
+     *  for clients of an EnigmaServer on ADDRESS (a loopback port, or the
+     *  path of a Unix domain socket), using each file's name as the id of
+     *  its configuration.
+     *
+     *  With the option --batch, the only other argument names a manifest
+     *  file, each non-blank line of which names a configuration file, an
+     *  input file, and an output file.  These jobs are run concurrently,
+     *  reading each configuration file only once, with any other options
+     *  applying to every job.  An error in one job is reported without
+     *  stopping the others, and the exit code is 1 if any job failed.
+     *
+     *  With the option --snapshot SNAPSHOT, the only other argument names
+     *  a configuration file, which is compiled into the file SNAPSHOT.  A
+     *  snapshot may be given anywhere a configuration file is, and loads
+     *  without parsing.
+     *
+     *  With the option --search CRIB, the input holds a ciphertext
+     *  instead of messages, and the output lists, as settings lines, the
+     *  keys of the configuration (rotor orders and starting settings)
+     *  under which the ciphertext, with its whitespace removed, begins
+     *  with the plaintext CRIB, taking the plugboard to be empty.  The
+     *  number of keys tried per second is reported on the standard
+     *  error.  The option --bombe CRIB is the same, except that the
+     *  plugboard is unknown: the keys listed are the stops of a Bombe,
+     *  each with the plugboard pairs it implies.
+     *
+     *  With the option --hillclimb NGRAMS, the input likewise holds a
+     *  ciphertext, but no crib is known.  The output lists the few keys,
+     *  each with a plugboard found for it by a HillClimb, whose
+     *  decryptions score best under the n-gram counts in the file NGRAMS,
+     *  best first, and the number of candidates evaluated per second is
+     *  reported on the standard error. */
     public static void main(String... args) {
         try {
             new Main(args).process();
@@ -37,25 +102,102 @@ public final class Main {
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        int first;
+        for (first = 0; first < args.length && args[first].startsWith("--");
+             first += 1) {
+            if (args[first].equals("--mmap")) {
+                _mapped = true;
+            } else if (args[first].equals("--parallel")) {
+                _pool = ForkJoinPool.commonPool();
+            } else if (args[first].equals("--batch")) {
+                _batch = true;
+            } else if (args[first].equals("--snapshot")
+                       && first + 1 < args.length) {
+                first += 1;
+                _snapshotName = args[first];
+            } else if (args[first].equals("--serve")
+                       && first + 1 < args.length) {
+                first += 1;
+                _address = EnigmaServer.address(args[first]);
+            } else if (args[first].equals("--search")
+                       && first + 1 < args.length) {
+                first += 1;
+                _crib = args[first];
+            } else if (args[first].equals("--bombe")
+                       && first + 1 < args.length) {
+                first += 1;
+                _crib = args[first];
+                _bombe = true;
+            } else if (args[first].equals("--hillclimb")
+                       && first + 1 < args.length) {
+                first += 1;
+                _ngramsName = args[first];
+            } else {
+                throw error("unknown option %s", args[first]);
+            }
+        }
+        args = Arrays.copyOfRange(args, first, args.length);
+        if (_snapshotName != null && args.length != 1) {
+            throw error("--snapshot needs just a configuration file");
+        }
+        if ((_crib != null || _ngramsName != null) && _mapped) {
+            throw error("--search, --bombe and --hillclimb cannot be used "
+                        + "with --mmap");
+        }
+        if (_batch) {
+            if (args.length != 1) {
+                throw error("--batch needs just a manifest file");
+            }
+            _manifestName = args[0];
+            return;
+        }
+        if (_address != null) {
+            if (args.length < 1) {
+                throw error("--serve needs configuration files");
+            }
+            _configNames = args;
+            return;
+        }
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        openConfig(args[0]);
+
+        if (_mapped) {
+            if (args.length != 3) {
+                throw error("--mmap needs input and output files");
+            }
+            _inputName = args[1];
+            _outputName = args[2];
+            return;
+        }
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = getReader(args[1]);
         } else {
-            _input = new Scanner(System.in);
+            _input = new InputStreamReader(System.in);
         }
 
         if (args.length > 2) {
             _output = getOutput(args[2]);
         } else {
-            _output = System.out;
+            _output = new FileOutputStream(FileDescriptor.out).getChannel();
         }
     }
 
+    /** A job of the batch run by BATCH, converting the file named INPUT
+     *  to the file named OUTPUT with the configuration CATALOG. */
+    private Main(Main batch, RotorCatalog catalog, String input,
+                 String output) {
+        _mapped = batch._mapped;
+        _pool = batch._pool;
+        _catalog = catalog;
+        _alphabet = catalog.alphabet();
+        _inputName = input;
+        _outputName = output;
+    }
+
     /** Return a Scanner reading from the file named NAME. */
     private Scanner getInput(String name) {
         try {
@@ -65,10 +207,21 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a Reader reading from the file named NAME. */
+    private Reader getReader(String name) {
+        try {
+            return new InputStreamReader(new FileInputStream(name));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a channel writing to the file named NAME, which is created
+     *  or emptied. */
+    private WritableByteChannel getOutput(String name) {
         try {
-            return new PrintStream(new File(name));
+            return FileChannel.open(Paths.get(name), WRITE, CREATE,
+                                    TRUNCATE_EXISTING);
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
@@ -77,133 +230,612 @@ public final class Main {
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
      *  results to _output. */
-    private void process() {
-        Machine A = readConfig();
-        String setting = _input.nextLine();
-        if (!setting.contains("*")) {
+    void process() {
+        if (_address != null) {
+            serve();
+            return;
+        }
+        if (_manifestName != null) {
+            runBatch();
+            return;
+        }
+        if (_snapshotName != null) {
+            readConfig();
+            ConfigSnapshot.write(_catalog, _snapshotName);
+            return;
+        }
+        if (_crib != null) {
+            search();
+            return;
+        }
+        if (_ngramsName != null) {
+            hillClimb();
+            return;
+        }
+        Machine A = _catalog == null ? readConfig() : newMachine();
+        if (_mapped) {
+            if (MappedConverter.supports(_alphabet)
+                && new MappedConverter(A, _alphabet,
+                                       (s, line) -> setUp(A, s, line))
+                       .convert(_inputName, _outputName)) {
+                return;
+            }
+            _input = getReader(_inputName);
+            _output = getOutput(_outputName);
+        }
+        MessageReader input = new MessageReader(_input);
+        if (input.next() != MessageReader.SETTINGS) {
             throw new EnigmaException("Wrong input format");
         }
-        setUp(A, setting);
-        while (_input.hasNextLine()) {
-            String testing = _input.nextLine();
-            if (testing.contains("*")) {
-                setUp(A, testing);
-                continue;
+        _writer = new MessageWriter(_output);
+        try {
+            if (_pool == null) {
+                processSequentially(A, input);
+            } else {
+                processSections(A, input);
             }
-            String result = A.convert(testing.replace(" ", ""));
-            printMessageLine(result);
+        } catch (EnigmaException excp) {
+            _writer.discardLine();
+            throw excp;
+        } finally {
+            _writer.flush();
         }
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
-        try {
-            _alphabet = new Alphabet(_config.next());
-            int numrotors = _config.nextInt();
-            int numpawls = _config.nextInt();
-            ArrayList<Rotor> allrotors = new ArrayList<Rotor>();
-            while (_config.hasNext()) {
-                allrotors.add(readRotor());
+    /** Apply M to the messages in INPUT, whose last item read was a
+     *  settings line, one after another. */
+    private void processSequentially(Machine M, MessageReader input) {
+        setUp(M, input.settings(), input.settingsLine());
+        char[] result = new char[MessageReader.BUFFER_SIZE];
+        while (true) {
+            switch (input.next()) {
+            case MessageReader.SETTINGS:
+                setUp(M, input.settings(), input.settingsLine());
+                break;
+            case MessageReader.TEXT:
+                M.convert(input.text(), 0, input.textLength(), result, 0);
+                _writer.write(result, 0, input.textLength());
+                break;
+            case MessageReader.END_OF_LINE:
+                _writer.endLine();
+                if (_lineListener != null) {
+                    _lineListener.run();
+                }
+                break;
+            default:
+                return;
             }
-            return new Machine(_alphabet, numrotors, numpawls, allrotors);
-        } catch (NoSuchElementException excp) {
-            throw error("configuration file truncated");
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
-        try {
-            String rotorname = _config.next();
-            if (_config.hasNext("M([^()*\\s]*)*")) {
-                String rotornotch = _config.next().substring(1);
-                String temp = "";
-                while (_config.hasNext("(\\([^()*\\s]*\\))+")) {
-                    temp += _config.findInLine("\\([^()*\\s]*\\)") + " ";
+    /** Arrange for LISTENER to be run as each message line is finished
+     *  when converting sequentially (without --parallel or --mmap), as by
+     *  a harness timing each message. */
+    void setLineListener(Runnable listener) {
+        _lineListener = listener;
+    }
+
+    /** Apply the messages in INPUT, whose last item read was a settings
+     *  line, section by section, converting the sections that follow
+     *  different settings lines concurrently in _pool on separate
+     *  machines and printing the results in order.  A section too long to
+     *  hold in memory is instead converted on M, once all earlier
+     *  sections are printed, SECTION_LIMIT characters at a time, each
+     *  split across _pool. */
+    private void processSections(Machine M, MessageReader input) {
+        ArrayDeque<Future<ConvertedSection>> pending = new ArrayDeque<>();
+        MachinePool machines =
+            new MachinePool(_catalog, MAX_PENDING_FACTOR
+                                      * _pool.getParallelism());
+        MessageSection section =
+            new MessageSection(input.settings(), input.settingsLine());
+        boolean streaming = false;
+        while (true) {
+            int item = input.next();
+            if (item == MessageReader.SETTINGS
+                || item == MessageReader.END) {
+                if (streaming) {
+                    section.convert(M, _writer, _pool);
+                } else {
+                    submit(section, pending, machines);
                 }
-                Permutation a = new Permutation(temp, _alphabet);
-                return new MovingRotor(rotorname, a, rotornotch);
-            } else if (_config.hasNext("N")) {
-                _config.next();
-                String temp = "";
-                while (_config.hasNext("(\\([^()*\\s]*\\))+")) {
-                    temp += _config.findInLine("\\([^()*\\s]*\\)") + " ";
+                if (item == MessageReader.END) {
+                    while (!pending.isEmpty()) {
+                        printSection(pending.remove());
+                    }
+                    return;
                 }
-                Permutation b = new Permutation(temp, _alphabet);
-                return new FixedRotor(rotorname, b);
-            } else if (_config.hasNext("R")) {
-                _config.next();
-                String temp = "";
-                while ((_config.hasNext("(\\([^()*\\s]*\\))"))) {
-                    temp += _config.next("\\([^()*\\s]*\\)");
+                section = new MessageSection(input.settings(),
+                                             input.settingsLine());
+                streaming = false;
+            } else if (item == MessageReader.TEXT) {
+                section.append(input.text(), 0, input.textLength());
+                if (section.size() > SECTION_LIMIT) {
+                    if (!streaming) {
+                        while (!pending.isEmpty()) {
+                            printSection(pending.remove());
+                        }
+                        setUp(M, section.settings(), section.line());
+                        streaming = true;
+                    }
+                    section.convert(M, _writer, _pool);
+                    section.clear();
                 }
-                Permutation c = new Permutation(temp, _alphabet);
-                return new Reflector(rotorname, c);
             } else {
-                throw error("Bad Rotor Description");
+                section.endLine();
             }
-        } catch (NoSuchElementException excp) {
-            throw error("bad rotor description");
         }
     }
 
-    /** Set M according to the specification given on SETTINGS,
-     *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
-        String x = settings;
-        Scanner setting = new Scanner(settings);
-        setting.next();
-        String[] temprotors = new String[M.numRotors()];
-        for (int i = 0; i < M.numRotors(); i++) {
-            temprotors[i] = setting.next();
+    /** Start converting SECTION in _pool on a machine of its own from
+     *  MACHINES, adding the result to PENDING.  First print the results at
+     *  the head of PENDING that are ready, and wait for more if too many
+     *  are outstanding. */
+    private void submit(MessageSection section,
+                        ArrayDeque<Future<ConvertedSection>> pending,
+                        MachinePool machines) {
+        while (!pending.isEmpty()
+               && (pending.peek().isDone()
+                   || pending.size() >= MAX_PENDING_FACTOR
+                                        * _pool.getParallelism())) {
+            printSection(pending.remove());
         }
-        for (int i = 0; i < temprotors.length - 1; i++) {
-            for (int j = i + 1; j < temprotors.length; j++) {
-                if (temprotors[i].equals(temprotors[j])) {
-                    throw new EnigmaException("Duplicate Rotor Name");
+        pending.add(_pool.submit(() -> {
+            ConvertedSection result = new ConvertedSection();
+            try {
+                Machine machine = borrow(machines, section.settings(),
+                                         section.line());
+                try {
+                    section.convert(machine, result.lines);
+                } finally {
+                    machines.giveBack(machine);
+                }
+            } catch (EnigmaException excp) {
+                result.error = excp;
+            }
+            return result;
+        }));
+    }
+
+    /** Wait for the converted SECTION and print it, then throw the error
+     *  that stopped its conversion, if any. */
+    private void printSection(Future<ConvertedSection> section) {
+        try {
+            ConvertedSection result = section.get();
+            _writer.writeLines(result.lines);
+            if (result.error != null) {
+                throw result.error;
+            }
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof EnigmaException) {
+                throw (EnigmaException) excp.getCause();
+            }
+            throw error("conversion failed: %s", excp.getCause());
+        } catch (InterruptedException excp) {
+            throw error("interrupted");
+        }
+    }
+
+    /** The lines of a section converted in the background, up to any
+     *  error that stopped its conversion. */
+    private static class ConvertedSection {
+        /** The lines converted. */
+        private final MessageWriter lines = new MessageWriter();
+        /** The error that stopped the conversion, or null. */
+        private EnigmaException error;
+    }
+
+    /** Run the jobs listed in the manifest file _manifestName, at most
+     *  one per processor at a time, and report the errors of any that
+     *  fail. */
+    private void runBatch() {
+        ArrayList<Integer> lines = new ArrayList<>();
+        ArrayList<String[]> jobs = readManifest(lines);
+        HashMap<String, RotorCatalog> catalogs = new HashMap<>();
+        HashMap<String, EnigmaException> badConfigs = new HashMap<>();
+        for (String[] job : jobs) {
+            String name = job[0];
+            if (!catalogs.containsKey(name) && !badConfigs.containsKey(name)) {
+                try {
+                    openConfig(name);
+                    readConfig();
+                    catalogs.put(name, _catalog);
+                } catch (EnigmaException excp) {
+                    badConfigs.put(name, excp);
+                }
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors());
+        ArrayList<Future<?>> results = new ArrayList<>();
+        try {
+            for (String[] job : jobs) {
+                RotorCatalog catalog = catalogs.get(job[0]);
+                results.add(executor.submit(() -> {
+                    if (catalog == null) {
+                        throw badConfigs.get(job[0]);
+                    }
+                    new Main(this, catalog, job[1], job[2]).runJob();
+                    return null;
+                }));
+            }
+            int failed = 0;
+            for (int i = 0; i < jobs.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException excp) {
+                    Throwable cause = excp.getCause();
+                    String message;
+                    if (cause instanceof EnigmaException) {
+                        message = cause.getMessage();
+                    } else {
+                        message = "conversion failed: " + cause;
+                    }
+                    failed += 1;
+                    System.err.printf("Error: %s:%d: %s -> %s: %s%n",
+                                      _manifestName, lines.get(i),
+                                      jobs.get(i)[1], jobs.get(i)[2],
+                                      message);
+                } catch (InterruptedException excp) {
+                    throw error("interrupted");
+                }
+            }
+            if (failed > 0) {
+                throw error("%d of %d jobs failed", failed, jobs.size());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Return the jobs listed in the manifest file _manifestName, each as
+     *  the names of its configuration, input, and output files, adding
+     *  the line number of each to LINES. */
+    private ArrayList<String[]> readManifest(ArrayList<Integer> lines) {
+        ArrayList<String[]> jobs = new ArrayList<>();
+        Scanner manifest = getInput(_manifestName);
+        for (int line = 1; manifest.hasNextLine(); line += 1) {
+            String[] job = manifest.nextLine().trim().split("\\s+");
+            if (job.length == 1 && job[0].isEmpty()) {
+                continue;
+            }
+            if (job.length != 3) {
+                throw error("%s:%d: expected configuration, input, and "
+                            + "output files", _manifestName, line);
+            }
+            jobs.add(job);
+            lines.add(line);
+        }
+        manifest.close();
+        return jobs;
+    }
+
+    /** Convert the file named _inputName to the file named _outputName,
+     *  closing both afterwards.  An error in closing either file is
+     *  reported only if the conversion itself succeeded, and is otherwise
+     *  attached to the conversion's error as suppressed. */
+    private void runJob() {
+        RuntimeException failure = null;
+        try {
+            if (!_mapped) {
+                _input = getReader(_inputName);
+                _output = getOutput(_outputName);
+            }
+            process();
+        } catch (RuntimeException excp) {
+            failure = excp;
+        }
+        failure = close(_output, _outputName, failure);
+        failure = close(_input, _inputName, failure);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /** Close FILE, named NAME, unless it is null, and return FAILURE, the
+     *  error that has already stopped its job, or null.  If closing fails
+     *  and FAILURE is null, return the error instead; otherwise add it to
+     *  FAILURE as suppressed. */
+    private static RuntimeException close(Closeable file, String name,
+                                          RuntimeException failure) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException excp) {
+                EnigmaException closing = error("could not close %s", name);
+                if (failure == null) {
+                    return closing;
                 }
+                failure.addSuppressed(closing);
             }
         }
-        M.insertRotors(temprotors);
-        M.setRotors(setting.next());
-        String permstrings = "";
-        while (setting.hasNext()) {
-            if (!setting.hasNext("([(][^()*]*[)])")) {
-                throw error("Is not a correct permutation");
+        return failure;
+    }
+
+    /** Read each configuration file named by _configNames and serve
+     *  clients of an EnigmaServer for them on _address. */
+    private void serve() {
+        HashMap<String, MachinePool> pools = new HashMap<>();
+        for (String name : _configNames) {
+            openConfig(name);
+            readConfig();
+            pools.put(name, new MachinePool(_catalog, SERVER_POOL_CAPACITY));
+        }
+        new EnigmaServer(pools, (pool, s) -> borrow(pool, s, 0))
+            .serve(_address);
+    }
+
+    /** Print the keys under which the ciphertext in _input begins with
+     *  _crib, searching them on all processors with a KeySearch, or a
+     *  Bombe if _bombe, and report the rate at which they were tried. */
+    private void search() {
+        readConfig();
+        String cipher = readCiphertext();
+        KeySearch search;
+        if (_bombe) {
+            search = new Bombe(_catalog, cipher, _crib);
+        } else {
+            search = new KeySearch(_catalog, new Permutation("", _alphabet),
+                                   cipher, _crib);
+        }
+        long start = System.nanoTime();
+        List<String> keys = search.search(ForkJoinPool.commonPool());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        printKeys(keys);
+        System.err.printf("%d keys in %.1f s (%.0f keys/s)%n", search.size(),
+                          seconds, search.size() / seconds);
+    }
+
+    /** Print the keys, with their plugboards, whose decryptions of the
+     *  ciphertext in _input score best under the n-grams in the file
+     *  _ngramsName, attacking them on all processors with a HillClimb,
+     *  and report the rate at which candidates were evaluated. */
+    private void hillClimb() {
+        readConfig();
+        NgramTable ngrams = NgramTable.read(_ngramsName, _alphabet);
+        HillClimb attack = new HillClimb(_catalog, ngrams, readCiphertext());
+        long start = System.nanoTime();
+        List<String> keys =
+            attack.attack(ForkJoinPool.commonPool(), HILL_CLIMB_KEYS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        printKeys(keys);
+        System.err.printf("%d candidates in %.1f s (%.0f candidates/s)%n",
+                          attack.candidates(), seconds,
+                          attack.candidates() / seconds);
+    }
+
+    /** Return the text of _input, with its whitespace removed. */
+    private String readCiphertext() {
+        StringBuilder cipher = new StringBuilder();
+        try {
+            char[] buffer = new char[MessageReader.BUFFER_SIZE];
+            for (int len; (len = _input.read(buffer)) >= 0;) {
+                for (int i = 0; i < len; i++) {
+                    if (!Character.isWhitespace(buffer[i])) {
+                        cipher.append(buffer[i]);
+                    }
+                }
             }
-            permstrings += setting.next();
+        } catch (IOException excp) {
+            throw error("could not read input: %s", excp.getMessage());
+        }
+        return cipher.toString();
+    }
+
+    /** Print KEYS to _output, one per line. */
+    private void printKeys(List<String> keys) {
+        PrintStream output = new PrintStream(Channels.newOutputStream(_output));
+        for (String key : keys) {
+            output.println(key);
         }
-        M.setPlugboard(new Permutation(permstrings, _alphabet));
+        output.flush();
     }
 
+    /** Return a new machine with the configuration read by readConfig. */
+    private Machine newMachine() {
+        return new Machine(_catalog);
+    }
 
+    /** Prepare to read the configuration file named NAME, which is either
+     *  a snapshot written by ConfigSnapshot or text to be read into
+     *  _config. */
+    private void openConfig(String name) {
+        _configName = name;
+        _config = ConfigSnapshot.isSnapshot(name) ? null : readFile(name);
+    }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        System.setOut(_output);
-        String whitespace = msg.replaceAll("\\s", "");
-        String messageline = "";
-        while (whitespace.length() >= 5) {
-            messageline += whitespace.substring(0, 5) + " ";
-            whitespace = whitespace.substring(5);
+    /** Return the contents of the file named NAME. */
+    private String readFile(String name) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(name)));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
         }
-        messageline += whitespace;
-        _output.println(messageline);
+    }
 
+    /** Return an Enigma machine configured from the contents of configuration
+     *  file _configName.  Package-private only so that the benchmarks in
+     *  bench can build their machines the way Main does. */
+    Machine readConfig() {
+        if (_config == null) {
+            _catalog = ConfigSnapshot.read(_configName);
+            _alphabet = _catalog.alphabet();
+            return newMachine();
+        }
+        Lexer config = new Lexer(_config, 1);
+        _alphabet = new Alphabet(config.word("alphabet"));
+        int numrotors = config.number("number of rotors");
+        int numpawls = config.number("number of pawls");
+        ArrayList<RotorDefinition> allrotors = new ArrayList<>();
+        StringBuilder cycles = new StringBuilder();
+        while (!config.atEnd()) {
+            allrotors.add(readRotor(config, cycles));
+        }
+        _catalog = new RotorCatalog(_alphabet, numrotors, numpawls,
+                                    allrotors);
+        return newMachine();
+    }
+
+    /** Return the definition of a rotor, reading it from CONFIG and using
+     *  CYCLES as scratch space for its cycles.  The rotor itself is built
+     *  only when first used. */
+    private RotorDefinition readRotor(Lexer config, StringBuilder cycles) {
+        String rotorname = config.word("rotor name");
+        int line = config.line(), column = config.column();
+        String kind = config.word("rotor type");
+        boolean moving = kind.charAt(0) == 'M' && kind.indexOf('(') < 0
+            && kind.indexOf(')') < 0 && kind.indexOf('*') < 0;
+        if (!moving && !kind.equals("N") && !kind.equals("R")) {
+            throw config.error("Bad Rotor Description");
+        }
+        cycles.setLength(0);
+        while (config.startsWith('(')) {
+            config.cycles(cycles);
+        }
+        if (moving) {
+            return new RotorDefinition(RotorDefinition.MOVING, rotorname,
+                                       kind.substring(1), cycles.toString(),
+                                       _alphabet, line, column);
+        }
+        return new RotorDefinition(kind.equals("N") ? RotorDefinition.FIXED
+                                   : RotorDefinition.REFLECTOR,
+                                   rotorname, "", cycles.toString(),
+                                   _alphabet, line, column);
     }
 
+    /** Set M according to the specification given on SETTINGS, which is
+     *  line LINE of the input (or of an unknown line if LINE is 0), and
+     *  must have the format specified in the assignment.  A settings line
+     *  seen recently is restored from _states rather than parsed.
+     *  Package-private only so that the benchmarks in bench can time it. */
+    void setUp(Machine M, String settings, int line) {
+        String key = SettingsCache.normalize(settings);
+        MachineState state = _states.get(key);
+        if (state != null) {
+            M.restore(state);
+            return;
+        }
+        Lexer setting = new Lexer(settings, line);
+        M.insertRotors(readRotorNames(setting, M.numRotors()));
+        M.setRotors(setting.word("rotor settings"));
+        M.setPlugboard(new Permutation(readPlugboard(setting), _alphabet));
+        _states.put(key, M.state());
+    }
+
+    /** Return a machine borrowed from POOL, set up according to the
+     *  specification given on SETTINGS, line LINE of the input, as for
+     *  setUp. */
+    private Machine borrow(MachinePool pool, String settings, int line) {
+        Lexer setting = new Lexer(settings, line);
+        String[] rotors =
+            readRotorNames(setting, pool.catalog().numRotors());
+        return pool.borrow(rotors, setting.word("rotor settings"),
+                           readPlugboard(setting));
+    }
+
+    /** Return the COUNT rotor names at the start of the settings line
+     *  SETTING, after its leading '*'. */
+    private String[] readRotorNames(Lexer setting, int count) {
+        if (!setting.accept('*')) {
+            throw setting.error("settings line must begin with *");
+        }
+        String[] temprotors = new String[count];
+        for (int i = 0; i < temprotors.length; i++) {
+            temprotors[i] = setting.word("rotor name");
+            for (int j = 0; j < i; j++) {
+                if (temprotors[i].equals(temprotors[j])) {
+                    throw setting.error("Duplicate Rotor Name");
+                }
+            }
+        }
+        return temprotors;
+    }
+
+    /** Return the plugboard cycles that remain on the settings line
+     *  SETTING. */
+    private String readPlugboard(Lexer setting) {
+        StringBuilder permstrings = new StringBuilder();
+        while (!setting.atEnd()) {
+            setting.cycles(permstrings);
+        }
+        return permstrings.toString();
+    }
+
+    /** Largest section, in message characters, held in memory to be
+     *  converted concurrently with others. */
+    private static final int SECTION_LIMIT = 1 << 20;
+
+    /** Number of settings lines whose machine states are cached. */
+    private static final int SETTINGS_CACHE_SIZE = 1024;
+
+    /** Number of idle machines kept for each configuration served. */
+    private static final int SERVER_POOL_CAPACITY = 256;
+
+    /** Number of sections per processor that may be outstanding. */
+    private static final int MAX_PENDING_FACTOR = 4;
+
+    /** Number of keys listed by --hillclimb. */
+    private static final int HILL_CLIMB_KEYS = 5;
+
     /** Source of input messages. */
-    private Scanner _input;
+    private Reader _input;
+
+    /** Text of the machine configuration, or null if it is a snapshot. */
+    private String _config;
 
-    /** Source of machine configuration. */
-    private Scanner _config;
+    /** Name of the configuration file. */
+    private String _configName;
+
+    /** Name of the snapshot file to write, or null. */
+    private String _snapshotName;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private WritableByteChannel _output;
+
+    /** Writer printing message lines to _output. */
+    private MessageWriter _writer;
+
+    /** True iff files are to be converted by a MappedConverter. */
+    private boolean _mapped;
+
+    /** Pool converting long message lines in parallel, or null. */
+    private ForkJoinPool _pool;
+
+    /** Run as each message line is finished, or null. */
+    private Runnable _lineListener;
+
+    /** Known plaintext to search for keys with, or null. */
+    private String _crib;
+
+    /** True iff _crib is to be searched for with a Bombe. */
+    private boolean _bombe;
+
+    /** Name of the file of n-gram counts for a HillClimb, or null. */
+    private String _ngramsName;
+
+    /** Address to serve clients on, or null. */
+    private SocketAddress _address;
+
+    /** True iff a manifest of jobs is to be run. */
+    private boolean _batch;
+
+    /** Name of the manifest file listing the jobs of a batch, or null. */
+    private String _manifestName;
+
+    /** Names of the configuration files to serve. */
+    private String[] _configNames;
+
+    /** Names of the input and output files when _mapped. */
+    private String _inputName, _outputName;
 
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
+    /** The configuration read from _config, shared by all machines. */
+    private RotorCatalog _catalog;
+
+    /** Machine states produced by recent settings lines. */
+    private final SettingsCache _states =
+        new SettingsCache(SETTINGS_CACHE_SIZE);
+
 }
@@ -0,0 +1,322 @@
+package enigma;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** The suite of all JUnit tests for the Main class, run on files.
+ *  @author Kaley Wong
+ */
+public class MainTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Line separator. */
+    private static final String NL = System.lineSeparator();
+
+    /** A configuration holding the naval rotors. */
+    private static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n"
+        + "5 3\n"
+        + "I MQ (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + "II ME (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)\n"
+        + "III MV (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + "IV MJ (AEPLIYWCOXMRFZBSTGJQNH) (DV) (KU)\n"
+        + "V MZ (AVOLDRWFIUQ)(BZKSMNHYC) (EGTJPX)\n"
+        + "Beta N (ALBEVFCYODJWUGNMQTZSKPR) (HIX)\n"
+        + "B R (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "     (RX) (SZ) (TV)\n";
+
+    /** Return the path of a file named NAME in the test directory. */
+    private Path file(String name) {
+        return _dir.resolve(name);
+    }
+
+    /** Write TEXT to the file named NAME in the test directory. */
+    private void write(String name, String text) throws IOException {
+        Files.write(file(name), text.getBytes(UTF_8));
+    }
+
+    /** Return the contents of the file named NAME in the test
+     *  directory. */
+    private String read(String name) throws IOException {
+        return new String(Files.readAllBytes(file(name)), UTF_8);
+    }
+
+    /** Return what Main prints, given OPTIONS, to the output file when
+     *  converting INPUT with CONFIG, followed by its error message, if
+     *  any, as it is printed on the standard error. */
+    private String convert(String input, String... options)
+        throws IOException {
+        write("test.conf", CONFIG);
+        write("test.in", input);
+        ArrayList<String> args = new ArrayList<>(Arrays.asList(options));
+        args.addAll(List.of(file("test.conf").toString(),
+                            file("test.in").toString(),
+                            file("test.out").toString()));
+        String error = "";
+        try {
+            new Main(args.toArray(new String[0])).process();
+        } catch (EnigmaException excp) {
+            error = String.format("Error: %s%n", excp.getMessage());
+        }
+        return read("test.out") + error;
+    }
+
+    /** Return what a MappedConverter mapping WINDOW bytes at a time
+     *  prints to the output file when converting INPUT with CONFIG,
+     *  followed by its error message, if any, as for convert. */
+    private String convertMapped(String input, int window)
+        throws IOException {
+        write("test.conf", CONFIG);
+        write("test.in", input);
+        String in = file("test.in").toString(),
+            out = file("test.out").toString();
+        Main main = new Main(new String[] { file("test.conf").toString(),
+                                            in, out });
+        Machine machine = main.readConfig();
+        String error = "";
+        try {
+            new MappedConverter(machine, machine.alphabet(),
+                                (s, line) -> main.setUp(machine, s, line),
+                                window).convert(in, out);
+        } catch (EnigmaException excp) {
+            error = String.format("Error: %s%n", excp.getMessage());
+        }
+        return read("test.out") + error;
+    }
+
+    /** Return what Main prints on the standard error when running the
+     *  jobs listed in MANIFEST with --batch, followed by its error
+     *  message, if any. */
+    private String batch(String manifest) throws IOException {
+        write("test.manifest", manifest);
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        PrintStream stderr = System.err;
+        System.setErr(new PrintStream(err, true));
+        String error = "";
+        try {
+            new Main(new String[] { "--batch",
+                                    file("test.manifest").toString() })
+                .process();
+        } catch (EnigmaException excp) {
+            error = String.format("Error: %s%n", excp.getMessage());
+        } finally {
+            System.setErr(stderr);
+        }
+        return err.toString() + error;
+    }
+
+    /** Return a manifest line for a job converting the file named INPUT
+     *  in the test directory to the file named OUTPUT with the
+     *  configuration file named CONFIG. */
+    private String job(String config, String input, String output) {
+        return file(config) + " " + file(input) + " " + file(output) + NL;
+    }
+
+    /** Return a message of LENGTH letters. */
+    private static String message(int length) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i += 1) {
+            result[i] = (char) ('A' + (i * 7 + i / 26) % 26);
+        }
+        return new String(result);
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("enigma");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (File f : _dir.toFile().listFiles()) {
+            Files.delete(f.toPath());
+        }
+        Files.delete(_dir);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testParallelSections() throws IOException {
+        String input = "* B Beta III IV I AXLE (YF) (ZH)\n"
+            + "HYIHL BKOML IUYDC MPPSF SZW\n"
+            + "\n"
+            + "* B Beta I II III AAAA\n"
+            + message(5000) + "\n"
+            + "HELLO WORLD\n"
+            + "* B Beta V IV III ZZZZ (AB)\n"
+            + "HELLO\n";
+        String expected = convert(input);
+        assertTrue(expected.startsWith("SSOPZ ISSZO ULIER ZIAWL THA" + NL
+                                       + NL));
+        assertEquals(expected, convert(input, "--parallel"));
+    }
+
+    @Test
+    public void testParallelSectionError() throws IOException {
+        String input = "* B Beta III IV I AXLE (YF) (ZH)\n"
+            + "HYIHL BKOML IUYDC MPPSF SZW\n"
+            + "* B Beta I II III AAAA\n"
+            + "HELLO WORLD\n"
+            + "GOODBYE\n"
+            + "HELLO W0RLD\n"
+            + "NOT CONVERTED\n"
+            + "* B Beta V IV III ZZZZ (AB)\n"
+            + "HELLO\n";
+        String expected = convert(input);
+        assertTrue(expected.endsWith(NL + "Error: character 0 is not in "
+                                     + "the alphabet" + NL));
+        assertEquals(4, expected.split("\n").length);
+        assertEquals(expected, convert(input, "--parallel"));
+    }
+
+    @Test
+    public void testParallelLongSectionError() throws IOException {
+        String input = "* B Beta III IV I AXLE (YF) (ZH)\n"
+            + "HYIHL BKOML IUYDC MPPSF SZW\n"
+            + "* B Beta I II III AAAA\n"
+            + message(700000) + "\n"
+            + message(700000) + "\n"
+            + "HELLO W0RLD\n";
+        String expected = convert(input);
+        assertEquals(4, expected.split("\n").length);
+        assertEquals(expected, convert(input, "--parallel"));
+    }
+
+    @Test
+    public void testMapped() throws IOException {
+        String[] inputs = {
+            "* B Beta III IV I AXLE (YF) (ZH)\n"
+            + "HYIHL BKOML IUYDC MPPSF SZW\n"
+            + "\n"
+            + "  \t\n"
+            + "* B Beta I II III AAAA\n"
+            + message(300) + "\n"
+            + "HELLO WORLD",
+            "* B Beta III IV I AXLE (YF) (ZH)\r\n"
+            + "HYIHL BKOML\r\n"
+            + "\r\n"
+            + "IUYDC MPPSF SZW\r\n",
+            "* B Beta III IV I AXLE (YF) (ZH)\n"
+            + "HYIHL BKOML IUYDC MPPSF SZW\n"
+            + "HELLO W0RLD\n"
+            + "NOT CONVERTED\n",
+            "HELLO\n",
+            "",
+        };
+        for (String input : inputs) {
+            String expected = convert(input);
+            assertEquals(expected, convert(input, "--mmap"));
+            for (int window : new int[] { 1, 7, 64 }) {
+                assertEquals(expected, convertMapped(input, window));
+            }
+        }
+    }
+
+    @Test
+    public void testLongLineError() throws IOException {
+        String start = "* B Beta III IV I AXLE (YF) (ZH)\nHYIHL BKOML\n";
+        String expected = convert(start);
+        String input = start + message(MessageReader.BUFFER_SIZE + 1000)
+            + "1" + message(10) + "\nHYIHL\n";
+        String output = convert(input);
+        assertEquals(expected, output.substring(0, expected.length()));
+        assertTrue(output.substring(expected.length())
+                   .startsWith("Error: "));
+        assertEquals(output, convert(input, "--mmap"));
+        assertEquals(output, convert(input, "--parallel"));
+        assertEquals(output, convertMapped(input, 4096));
+    }
+
+    @Test
+    public void testMappedNonASCII() throws IOException {
+        String input = "* B Beta III IV I AXLE (YF) (ZH)\n"
+            + "HYIHL\u2003BKOML\u00a0IUYDC\n"
+            + "MPPSF SZW\n";
+        String expected = convert(input);
+        assertEquals(expected, convert(input, "--mmap"));
+        Main main = new Main(new String[] { file("test.conf").toString() });
+        Machine machine = main.readConfig();
+        assertFalse(new MappedConverter(machine, machine.alphabet(),
+                                        (s, line) -> main.setUp(machine, s,
+                                                                line), 7)
+                    .convert(file("test.in").toString(),
+                             file("test.out").toString()));
+        assertEquals("", read("test.out"));
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        String first = "* B Beta III IV I AXLE (YF) (ZH)\nHYIHL BKOML\n";
+        String second = "* B Beta I II III AAAA\n" + message(3000) + "\n";
+        String expected1 = convert(first), expected2 = convert(second);
+        write("a.in", first);
+        write("b.in", second);
+        assertEquals("", batch(job("test.conf", "a.in", "a.out") + NL
+                               + job("test.conf", "b.in", "b.out")));
+        assertEquals(expected1, read("a.out"));
+        assertEquals(expected2, read("b.out"));
+    }
+
+    @Test
+    public void testBatchMissingFiles() throws IOException {
+        String input = "* B Beta III IV I AXLE (YF) (ZH)\nHYIHL BKOML\n";
+        String expected = convert(input);
+        write("a.in", input);
+        String[] errors =
+            batch(job("test.conf", "a.in", "a.out")
+                  + job("test.conf", "none.in", "b.out")
+                  + job("none.conf", "a.in", "c.out")).split(NL);
+        assertEquals(3, errors.length);
+        assertEquals("Error: " + file("test.manifest") + ":2: "
+                     + file("none.in") + " -> " + file("b.out")
+                     + ": could not open " + file("none.in"), errors[0]);
+        assertTrue(errors[1].startsWith("Error: " + file("test.manifest")
+                                        + ":3: " + file("a.in") + " -> "
+                                        + file("c.out") + ": "));
+        assertEquals("Error: 2 of 3 jobs failed", errors[2]);
+        assertEquals(expected, read("a.out"));
+    }
+
+    @Test
+    public void testBatchBadJob() throws IOException {
+        String input = "* B Beta III IV I AXLE (YF) (ZH)\nHYIHL BKOML\n";
+        String expected = convert(input);
+        write("a.in", input);
+        write("b.in", "* X Beta III IV I AXLE\nHYIHL\n");
+        assertEquals("Error: " + file("test.manifest") + ":3: "
+                     + file("b.in") + " -> " + file("b.out")
+                     + ": unknown rotor X" + NL
+                     + "Error: 1 of 3 jobs failed" + NL,
+                     batch(job("test.conf", "a.in", "a.out") + NL
+                           + job("test.conf", "b.in", "b.out")
+                           + job("test.conf", "a.in", "c.out")));
+        assertEquals(expected, read("a.out"));
+        assertEquals(expected, read("c.out"));
+    }
+
+    /** Directory holding the files of a test. */
+    private Path _dir;
+
+}
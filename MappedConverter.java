@@ -0,0 +1,275 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.ObjIntConsumer;
+
+import static enigma.EnigmaException.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/** Converts an input file of settings lines and messages to an output file
+ *  by memory-mapping both and translating bytes directly, without
+ *  decoding them into characters.  Only usable for alphabets of ASCII
+ *  characters, which are their own single-byte encoding, and for input
+ *  files that are entirely ASCII; other input must be decoded.
+ *  @author Kaley Wong
+ */
+class MappedConverter {
+
+    /** Size of the file regions mapped at one time, in bytes. */
+    static final int WINDOW = 1 << 26;
+
+    /** A converter that sends messages through MACHINE, whose alphabet is
+     *  ALPHABET, and hands each settings line, with its line number, to
+     *  SETUP. */
+    MappedConverter(Machine machine, Alphabet alphabet,
+                    ObjIntConsumer<String> setUp) {
+        this(machine, alphabet, setUp, WINDOW);
+    }
+
+    /** A converter as for MappedConverter(MACHINE, ALPHABET, SETUP) that
+     *  maps regions of WINDOW bytes at a time. */
+    MappedConverter(Machine machine, Alphabet alphabet,
+                    ObjIntConsumer<String> setUp, int window) {
+        _window = window;
+        _machine = machine;
+        _setUp = setUp;
+        _toIndex = new int[BYTES];
+        _whitespace = new boolean[BYTES];
+        for (int b = 0; b < BYTES; b++) {
+            _toIndex[b] = alphabet.toInt((char) b);
+            _whitespace[b] = Character.isWhitespace((char) b);
+        }
+        _toByte = new byte[alphabet.size()];
+        for (int i = 0; i < alphabet.size(); i++) {
+            _toByte[i] = (byte) alphabet.toChar(i);
+        }
+        _lineEnd = System.lineSeparator().getBytes();
+    }
+
+    /** Return true iff every character of ALPHABET is ASCII, so that a
+     *  MappedConverter can handle it. */
+    static boolean supports(Alphabet alphabet) {
+        for (int i = 0; i < alphabet.size(); i++) {
+            if (alphabet.toChar(i) >= ASCII) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Convert the file named INPUT, writing the results in groups of five
+     *  to the file named OUTPUT, and return true.  The first line of INPUT
+     *  must be a settings line.  If an error occurs, OUTPUT holds the lines
+     *  finished before it.  If INPUT holds a byte outside ASCII before any
+     *  error, stop, leave OUTPUT empty, and return false, so that INPUT
+     *  can be decoded and converted some other way. */
+    boolean convert(String input, String output) {
+        Path inPath = Paths.get(input), outPath = Paths.get(output);
+        try (FileChannel in = FileChannel.open(inPath, READ);
+             FileChannel out = FileChannel.open(outPath, READ, WRITE, CREATE,
+                                                TRUNCATE_EXISTING)) {
+            _out = out;
+            _outBase = 0;
+            _outBuffer = null;
+            boolean ascii = true;
+            try {
+                long size = in.size();
+                for (long base = 0; ascii && base < size; base += _window) {
+                    int len = (int) Math.min(_window, size - base);
+                    ascii = convert(in.map(MapMode.READ_ONLY, base, len));
+                }
+                if (ascii) {
+                    finish();
+                }
+            } finally {
+                long written = !ascii ? 0
+                    : _state == IN_MESSAGE ? _lineStart : offset();
+                _outBuffer = null;
+                out.truncate(written);
+            }
+            return ascii;
+        } catch (IOException excp) {
+            throw error("could not convert %s to %s: %s", input, output,
+                        excp.getMessage());
+        }
+    }
+
+    /** Process the bytes of IN, which continue any line left unfinished
+     *  by the previous region.  Return false, at once, on reaching a byte
+     *  outside ASCII, and otherwise true. */
+    private boolean convert(MappedByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            int b = in.get() & BYTE_MASK;
+            if (b >= ASCII) {
+                return false;
+            }
+            switch (_state) {
+            case LINE_START:
+                if (b == '\n') {
+                    endMessageLine();
+                } else if (b == '*') {
+                    _settings.setLength(0);
+                    _settings.append('*');
+                    _state = IN_SETTINGS;
+                } else if (_whitespace[b]) {
+                    _blanks = true;
+                } else {
+                    startMessageLine();
+                    convertByte(b);
+                }
+                break;
+            case IN_SETTINGS:
+                if (b == '\n') {
+                    endSettingsLine();
+                } else if (_settings.length() < MessageReader.MAX_SETTINGS) {
+                    _settings.append((char) b);
+                } else {
+                    throw error("settings line too long");
+                }
+                break;
+            default:
+                if (b == '\n') {
+                    endMessageLine();
+                } else if (!_whitespace[b]) {
+                    convertByte(b);
+                }
+                break;
+            }
+        }
+        return true;
+    }
+
+    /** Finish the last line of input, which may lack a line end. */
+    private void finish() throws IOException {
+        if (_state == IN_SETTINGS) {
+            endSettingsLine();
+        } else if (_state == IN_MESSAGE || _blanks) {
+            endMessageLine();
+        }
+        if (!_configured) {
+            throw error("Wrong input format");
+        }
+    }
+
+    /** Apply the settings line just read. */
+    private void endSettingsLine() {
+        _lines += 1;
+        _setUp.accept(_settings.toString(), _lines);
+        _configured = true;
+        _state = LINE_START;
+        _blanks = false;
+    }
+
+    /** Begin a message line, checking that it follows a settings line. */
+    private void startMessageLine() {
+        if (!_configured) {
+            throw error("Wrong input format");
+        }
+        _state = IN_MESSAGE;
+        _lineStart = offset();
+    }
+
+    /** Return the offset in the output file of the next byte to be
+     *  written. */
+    private long offset() {
+        return _outBuffer == null ? _outBase
+            : _outBase + _outBuffer.position();
+    }
+
+    /** Finish the current message line. */
+    private void endMessageLine() throws IOException {
+        startMessageLine();
+        _lines += 1;
+        for (byte b : _lineEnd) {
+            put(b);
+        }
+        _groupLength = 0;
+        _state = LINE_START;
+        _blanks = false;
+    }
+
+    /** Convert the message character whose encoding is B and write it. */
+    private void convertByte(int b) throws IOException {
+        int index = _toIndex[b];
+        if (index < 0) {
+            throw error("character %c is not in the alphabet", (char) b);
+        }
+        put(_toByte[_machine.convert(index)]);
+        _groupLength += 1;
+        if (_groupLength == GROUP_SIZE) {
+            put((byte) ' ');
+            _groupLength = 0;
+        }
+    }
+
+    /** Write B to the output, mapping a further region of the output file
+     *  if needed. */
+    private void put(byte b) throws IOException {
+        if (_outBuffer == null || !_outBuffer.hasRemaining()) {
+            if (_outBuffer != null) {
+                _outBase += _outBuffer.position();
+            }
+            _outBuffer = _out.map(MapMode.READ_WRITE, _outBase, _window);
+        }
+        _outBuffer.put(b);
+    }
+
+    /** Number of ASCII characters. */
+    private static final int ASCII = 128;
+    /** Number of distinct byte values. */
+    private static final int BYTES = 256;
+    /** Mask extracting an unsigned byte value. */
+    private static final int BYTE_MASK = 0xff;
+    /** Number of letters in a group of output. */
+    private static final int GROUP_SIZE = 5;
+
+    /** State at the start of a line. */
+    private static final int LINE_START = 0;
+    /** State part way through a settings line. */
+    private static final int IN_SETTINGS = 1;
+    /** State part way through a message line. */
+    private static final int IN_MESSAGE = 2;
+
+    /** Size of the file regions mapped at one time, in bytes. */
+    private final int _window;
+    /** Machine converting messages. */
+    private final Machine _machine;
+    /** Applies each settings line to _machine. */
+    private final ObjIntConsumer<String> _setUp;
+    /** Alphabet index of each byte value, or -1. */
+    private final int[] _toIndex;
+    /** True for byte values that are whitespace. */
+    private final boolean[] _whitespace;
+    /** Byte encoding of each alphabet index. */
+    private final byte[] _toByte;
+    /** Encoding of a line end. */
+    private final byte[] _lineEnd;
+
+    /** Where I am in the input: LINE_START, IN_SETTINGS, or IN_MESSAGE. */
+    private int _state = LINE_START;
+    /** True iff the current line so far holds only blanks. */
+    private boolean _blanks;
+    /** True iff a settings line has been applied. */
+    private boolean _configured;
+    /** Number of lines ended so far. */
+    private int _lines;
+    /** The settings line being read. */
+    private final StringBuilder _settings = new StringBuilder();
+    /** Number of letters written in the current group of five. */
+    private int _groupLength;
+
+    /** Output file. */
+    private FileChannel _out;
+    /** Mapped region of _out being written, or null. */
+    private MappedByteBuffer _outBuffer;
+    /** Offset in _out of the start of the current message line. */
+    private long _lineStart;
+    /** Offset in _out of the start of _outBuffer. */
+    private long _outBase;
+
+}
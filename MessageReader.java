@@ -0,0 +1,188 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static enigma.EnigmaException.*;
+
+/** A reader that splits enigma input into settings lines and message text.
+ *  Message text is delivered a buffer at a time with whitespace removed,
+ *  so memory use does not depend on the length of a line or of the input.
+ *  @author Kaley Wong
+ */
+class MessageReader {
+
+    /** Item returned by next() for a settings line. */
+    static final int SETTINGS = 0;
+    /** Item returned by next() for a piece of a message line. */
+    static final int TEXT = 1;
+    /** Item returned by next() at the end of a message line. */
+    static final int END_OF_LINE = 2;
+    /** Item returned by next() once the input is exhausted. */
+    static final int END = 3;
+
+    /** State at the start of a line. */
+    private static final int LINE_START = 0;
+    /** State part way through a message line. */
+    private static final int IN_MESSAGE = 1;
+    /** State after the last piece of a message line, before END_OF_LINE
+     *  has been reported. */
+    private static final int LINE_ENDED = 2;
+
+    /** Size of my buffers, in characters. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Longest settings line I accept, in characters. */
+    static final int MAX_SETTINGS = 1 << 20;
+
+    /** A reader for the enigma input in INPUT. */
+    MessageReader(Reader input) {
+        _input = input;
+        _buffer = new char[BUFFER_SIZE];
+        _text = new char[BUFFER_SIZE];
+    }
+
+    /** Read and return the next item of input: SETTINGS, TEXT,
+     *  END_OF_LINE, or END.  A settings line is one whose first
+     *  non-blank character is '*'; any other line is message text.
+     *  Every message line, including an empty one, produces zero or
+     *  more TEXT items followed by END_OF_LINE. */
+    int next() {
+        _textLength = 0;
+        if (_state == LINE_ENDED) {
+            _state = LINE_START;
+            return END_OF_LINE;
+        }
+        if (_state == LINE_START) {
+            boolean blanks = false;
+            int ch;
+            for (ch = peek(); ch >= 0 && ch != '\n'
+                     && Character.isWhitespace((char) ch); ch = peek()) {
+                _pos += 1;
+                blanks = true;
+            }
+            if (ch < 0) {
+                return blanks ? END_OF_LINE : END;
+            }
+            if (ch == '*') {
+                readSettings();
+                return SETTINGS;
+            }
+            _state = IN_MESSAGE;
+        }
+        while (_textLength < _text.length) {
+            int ch = read();
+            if (ch < 0 || ch == '\n') {
+                _lines += 1;
+                if (_textLength > 0) {
+                    _state = LINE_ENDED;
+                    return TEXT;
+                }
+                _state = LINE_START;
+                return END_OF_LINE;
+            }
+            if (!Character.isWhitespace((char) ch)) {
+                _text[_textLength++] = (char) ch;
+            }
+        }
+        return TEXT;
+    }
+
+    /** Return the settings line read by the last call to next(), which
+     *  must have returned SETTINGS. */
+    String settings() {
+        return _settings;
+    }
+
+    /** Return the line number, counting from 1, of the settings line read
+     *  by the last call to next(), which must have returned SETTINGS. */
+    int settingsLine() {
+        return _settingsLine;
+    }
+
+    /** Return the buffer holding the message text read by the last call
+     *  to next(), which must have returned TEXT.  The buffer is reused by
+     *  subsequent calls. */
+    char[] text() {
+        return _text;
+    }
+
+    /** Return the number of characters at the start of text() that were
+     *  read by the last call to next(). */
+    int textLength() {
+        return _textLength;
+    }
+
+    /** Read the rest of the current line as a settings line, less the
+     *  carriage return of a CRLF line ending. */
+    private void readSettings() {
+        _lines += 1;
+        _settingsLine = _lines;
+        _line.setLength(0);
+        for (int ch = read(); ch >= 0 && ch != '\n'; ch = read()) {
+            if (_line.length() >= MAX_SETTINGS) {
+                throw error("settings line too long");
+            }
+            _line.append((char) ch);
+        }
+        int len = _line.length();
+        if (len > 0 && _line.charAt(len - 1) == '\r') {
+            _line.setLength(len - 1);
+        }
+        _settings = _line.toString();
+    }
+
+    /** Return and consume the next character of input, or -1 at the end
+     *  of the input. */
+    private int read() {
+        int ch = peek();
+        if (ch >= 0) {
+            _pos += 1;
+        }
+        return ch;
+    }
+
+    /** Return the next character of input without consuming it, or -1 at
+     *  the end of the input. */
+    private int peek() {
+        if (_pos == _limit) {
+            try {
+                do {
+                    _limit = _input.read(_buffer);
+                } while (_limit == 0);
+            } catch (IOException excp) {
+                throw error("could not read input: %s", excp.getMessage());
+            }
+            _pos = 0;
+            if (_limit < 0) {
+                _limit = 0;
+                return -1;
+            }
+        }
+        return _buffer[_pos];
+    }
+
+    /** Source of input. */
+    private final Reader _input;
+    /** Characters read from _input but not yet consumed. */
+    private final char[] _buffer;
+    /** Position of the next unconsumed character in _buffer. */
+    private int _pos;
+    /** Number of valid characters in _buffer. */
+    private int _limit;
+    /** Message text returned by the last call to next(). */
+    private final char[] _text;
+    /** Number of valid characters in _text. */
+    private int _textLength;
+    /** Where I am in the input: LINE_START, IN_MESSAGE, or LINE_ENDED. */
+    private int _state = LINE_START;
+    /** Buffer for the current settings line. */
+    private final StringBuilder _line = new StringBuilder();
+    /** The last settings line read. */
+    private String _settings;
+    /** Line number of _settings. */
+    private int _settingsLine;
+    /** Number of lines reached so far. */
+    private int _lines;
+
+}
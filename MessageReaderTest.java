@@ -0,0 +1,118 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The suite of all JUnit tests for the MessageReader class.
+ *  @author Kaley Wong
+ */
+public class MessageReaderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Return the items read from INPUT by a MessageReader, through END:
+     *  "S3 * B" for the settings line "* B" on line 3, "T ABC" for the
+     *  text "ABC", "EOL" for END_OF_LINE, and "END". */
+    private List<String> items(String input) {
+        MessageReader reader = new MessageReader(new StringReader(input));
+        ArrayList<String> result = new ArrayList<>();
+        while (true) {
+            switch (reader.next()) {
+            case MessageReader.SETTINGS:
+                result.add("S" + reader.settingsLine() + " "
+                           + reader.settings());
+                break;
+            case MessageReader.TEXT:
+                result.add("T " + new String(reader.text(), 0,
+                                             reader.textLength()));
+                break;
+            case MessageReader.END_OF_LINE:
+                result.add("EOL");
+                break;
+            default:
+                result.add("END");
+                return result;
+            }
+        }
+    }
+
+    /** Return a string of LENGTH letters. */
+    private static String letters(int length) {
+        char[] result = new char[length];
+        for (int i = 0; i < length; i += 1) {
+            result[i] = (char) ('A' + i % 26);
+        }
+        return new String(result);
+    }
+
+    @Test
+    public void testLines() {
+        assertEquals(List.of("S1 * B Beta III IV I AXLE", "T HELLOWORLD",
+                             "EOL", "EOL", "S4 * B", "T ABC", "EOL", "END"),
+                     items("* B Beta III IV I AXLE\nHELLO WORLD\n\n"
+                           + "  * B\n A B C \n"));
+    }
+
+    @Test
+    public void testEmptyInput() {
+        assertEquals(List.of("END"), items(""));
+        assertEquals(List.of("EOL", "END"), items("  \t "));
+    }
+
+    @Test
+    public void testNoFinalNewline() {
+        assertEquals(List.of("S1 * B", "T ABC", "EOL", "END"),
+                     items("* B\nABC"));
+        assertEquals(List.of("S1 * B", "T ABC", "EOL", "END"),
+                     items("* B\nABC  "));
+    }
+
+    @Test
+    public void testSettingsLast() {
+        assertEquals(List.of("S1 * B", "T ABC", "EOL", "S3 * C", "END"),
+                     items("* B\nABC\n* C"));
+        assertEquals(List.of("S1 * B", "T ABC", "EOL", "S3 * C", "END"),
+                     items("* B\nABC\n* C\n"));
+    }
+
+    @Test
+    public void testCRLF() {
+        assertEquals(List.of("S1 * B Beta", "T ABCD", "EOL", "EOL",
+                             "S4 * C", "T EF", "EOL", "END"),
+                     items("* B Beta\r\nAB CD\r\n\r\n* C\r\nEF\r\n"));
+    }
+
+    @Test
+    public void testLongLine() {
+        int size = MessageReader.BUFFER_SIZE;
+        String line = letters(size + 10);
+        assertEquals(List.of("S1 * B", "T " + line.substring(0, size),
+                             "T " + line.substring(size), "EOL", "T ABC",
+                             "EOL", "END"),
+                     items("* B\n" + line + "\nABC\n"));
+        assertEquals(List.of("S1 * B", "T " + line.substring(0, size),
+                             "EOL", "END"),
+                     items("* B\n" + line.substring(0, size) + "\n"));
+    }
+
+    @Test
+    public void testPieceBoundary() {
+        int size = MessageReader.BUFFER_SIZE;
+        String first = "* B\n" + letters(size - 7) + "\n";
+        assertEquals(List.of("S1 * B", "T " + letters(size - 7), "EOL",
+                             "S3 * C Beta III", "T HELLO", "EOL", "END"),
+                     items(first + "* C Beta III\nHEL LO\n"));
+        assertEquals(List.of("S1 * B", "T " + letters(size - 7), "EOL",
+                             "T ABCDEFGHIJKL", "EOL", "END"),
+                     items(first + "ABCDEF GHIJKL\n"));
+    }
+
+}
@@ -0,0 +1,121 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/** The message lines that follow one settings line of the input, held in
+ *  memory so that they can be converted independently of other sections.
+ *  @author Kaley Wong
+ */
+class MessageSection {
+
+    /** An empty section following the settings line SETTINGS, which is
+     *  line LINE of the input. */
+    MessageSection(String settings, int line) {
+        _settings = settings;
+        _line = line;
+        _text = new char[INITIAL_SIZE];
+        _lineEnds = new int[INITIAL_SIZE];
+    }
+
+    /** Return my settings line. */
+    String settings() {
+        return _settings;
+    }
+
+    /** Return the line number of my settings line. */
+    int line() {
+        return _line;
+    }
+
+    /** Return the number of message characters I hold. */
+    int size() {
+        return _size;
+    }
+
+    /** Add the LEN characters of TEXT starting at OFF to my last message
+     *  line. */
+    void append(char[] text, int off, int len) {
+        if (_size + len > _text.length) {
+            _text = Arrays.copyOf(_text, Math.max(_size + len,
+                                                  2 * _text.length));
+        }
+        System.arraycopy(text, off, _text, _size, len);
+        _size += len;
+    }
+
+    /** End my last message line. */
+    void endLine() {
+        if (_lines == _lineEnds.length) {
+            _lineEnds = Arrays.copyOf(_lineEnds, 2 * _lines);
+        }
+        _lineEnds[_lines] = _size;
+        _lines += 1;
+    }
+
+    /** Remove my message characters and lines, as once they have been
+     *  converted and printed.  Text appended afterwards continues my last
+     *  line, if it was not ended. */
+    void clear() {
+        _size = 0;
+        _lines = 0;
+    }
+
+    /** Convert my message lines with MACHINE, which must already be set
+     *  up, and print them to OUTPUT, leaving my last line open if it has
+     *  not been ended. */
+    void convert(Machine machine, MessageWriter output) {
+        convert(machine, output, null);
+    }
+
+    /** Convert my message lines as for convert(MACHINE, OUTPUT), but
+     *  converting pieces of them concurrently in POOL, unless it is null.
+     *  If a line holds a character not in MACHINE's alphabet, only the
+     *  lines before it are printed, as when converting line by line, and
+     *  then the error is thrown. */
+    void convert(Machine machine, MessageWriter output, ForkJoinPool pool) {
+        Alphabet alpha = machine.alphabet();
+        int valid = 0;
+        while (valid < _size && alpha.contains(_text[valid])) {
+            valid += 1;
+        }
+        int lines = 0;
+        while (lines < _lines && _lineEnds[lines] <= valid) {
+            lines += 1;
+        }
+        int end = valid;
+        if (valid < _size) {
+            end = lines == 0 ? 0 : _lineEnds[lines - 1];
+        }
+        if (pool == null) {
+            machine.convert(_text, 0, end, _text, 0);
+        } else {
+            machine.convert(_text, 0, end, _text, 0, pool);
+        }
+        int start = 0;
+        for (int i = 0; i < lines; i++) {
+            output.write(_text, start, _lineEnds[i] - start);
+            output.endLine();
+            start = _lineEnds[i];
+        }
+        output.write(_text, start, end - start);
+        machine.convert(_text, end, _size - end, _text, end);
+    }
+
+    /** Initial capacity of my buffers. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** My settings line. */
+    private final String _settings;
+    /** Line number of my settings line in the input. */
+    private final int _line;
+    /** Message characters of all my lines, whitespace removed. */
+    private char[] _text;
+    /** Number of valid characters in _text. */
+    private int _size;
+    /** Position in _text of the end of each complete line. */
+    private int[] _lineEnds;
+    /** Number of complete lines. */
+    private int _lines;
+
+}
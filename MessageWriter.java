@@ -0,0 +1,244 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/** A writer that prints converted message lines in groups of five
+ *  letters (except that the last group of a line may have fewer), taking
+ *  each line a piece at a time.  Letters are encoded straight into a
+ *  reusable byte buffer, which is written out in large blocks.
+ *  @author Kaley Wong
+ */
+class MessageWriter {
+
+    /** Number of letters in a group of printed output. */
+    static final int GROUP_SIZE = 5;
+    /** Size in bytes of the blocks in which output is written. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** A writer printing to OUTPUT.  If OUTPUT is seekable, such as a
+     *  regular file, an unfinished line may be written out in part and
+     *  later cut off by discardLine; otherwise it is held in memory until
+     *  it ends, however long it grows. */
+    MessageWriter(WritableByteChannel output) {
+        _output = output;
+        _bytes = new byte[BUFFER_SIZE];
+        _seekable = seekable(output);
+    }
+
+    /** A writer that holds everything it prints in memory, until it is
+     *  itself printed by the writeLines method of another writer. */
+    MessageWriter() {
+        _output = null;
+        _bytes = new byte[INITIAL_SIZE];
+        _seekable = false;
+    }
+
+    /** Return true iff OUTPUT is a channel whose current position can be
+     *  found, so that what has been written to it can be truncated. */
+    private static boolean seekable(WritableByteChannel output) {
+        if (!(output instanceof SeekableByteChannel)) {
+            return false;
+        }
+        try {
+            ((SeekableByteChannel) output).position();
+            return true;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Print the LEN characters of MSG starting at OFF as the continuation
+     *  of the current message line. */
+    void write(char[] msg, int off, int len) {
+        byte[] bytes = _bytes;
+        int size = _size, group = _groupLength;
+        for (int i = off; i < off + len; i++) {
+            if (bytes.length - size < MAX_CHAR_BYTES + 1) {
+                _size = size;
+                makeRoom(MAX_CHAR_BYTES + 1);
+                bytes = _bytes;
+                size = _size;
+            }
+            char ch = msg[i];
+            if (ch < ASCII_LIMIT) {
+                bytes[size++] = (byte) ch;
+            } else if (UTF8 && ch < TWO_BYTE_LIMIT) {
+                bytes[size++] = (byte) (0xc0 | ch >> 6);
+                bytes[size++] = (byte) (0x80 | ch & 0x3f);
+            } else if (UTF8 && !Character.isSurrogate(ch)) {
+                bytes[size++] = (byte) (0xe0 | ch >> 12);
+                bytes[size++] = (byte) (0x80 | ch >> 6 & 0x3f);
+                bytes[size++] = (byte) (0x80 | ch & 0x3f);
+            } else {
+                size = encode(ch, size);
+            }
+            group += 1;
+            if (group == GROUP_SIZE) {
+                bytes[size++] = ' ';
+                group = 0;
+            }
+        }
+        _size = size;
+        _groupLength = group;
+    }
+
+    /** Encode CH into _bytes at SIZE, where there must be room for it, as
+     *  String.getBytes would, and return the size of _bytes after it. */
+    private int encode(char ch, int size) {
+        if (_encoder == null) {
+            _encoder = CHARSET.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            _char = CharBuffer.allocate(1);
+        }
+        _char.clear();
+        _char.put(ch).flip();
+        ByteBuffer out = ByteBuffer.wrap(_bytes, size, _bytes.length - size);
+        _encoder.reset();
+        _encoder.encode(_char, out, true);
+        _encoder.flush(out);
+        return out.position();
+    }
+
+    /** End the current message line. */
+    void endLine() {
+        if (_bytes.length - _size < LINE_END.length) {
+            makeRoom(LINE_END.length);
+        }
+        System.arraycopy(LINE_END, 0, _bytes, _size, LINE_END.length);
+        _size += LINE_END.length;
+        _groupLength = 0;
+        _lineStart = _size;
+        _lineWritten = 0;
+        if (_output != null && _size > BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    /** Discard the current message line, as far as it has been printed,
+     *  so that the output ends with the last line finished. */
+    void discardLine() {
+        if (_lineWritten > 0) {
+            SeekableByteChannel output = (SeekableByteChannel) _output;
+            try {
+                output.truncate(output.position() - _lineWritten);
+            } catch (IOException excp) {
+                throw error("could not write output: %s", excp.getMessage());
+            }
+        }
+        _size = _lineStart;
+        _groupLength = 0;
+        _lineWritten = 0;
+    }
+
+    /** Print LINES, whole message lines held by a writer made without an
+     *  output.  I must be at the start of a line. */
+    void writeLines(MessageWriter lines) {
+        int len = lines._size;
+        if (_bytes.length - _size < len) {
+            makeRoom(len);
+        }
+        if (_bytes.length - _size < len) {
+            write(ByteBuffer.wrap(lines._bytes, 0, len));
+        } else {
+            System.arraycopy(lines._bytes, 0, _bytes, _size, len);
+            _size += len;
+        }
+        _lineStart = _size;
+    }
+
+    /** Write out any buffered output. */
+    void flush() {
+        if (_output != null && _size > 0) {
+            write(ByteBuffer.wrap(_bytes, 0, _size));
+            _lineWritten += _size - _lineStart;
+            _lineStart = _size = 0;
+        }
+    }
+
+    /** Make room for at least LEN more bytes in _bytes: by writing it out
+     *  if I have a seekable output, and otherwise by writing out the lines
+     *  it finishes, if I have an output, and enlarging it to hold any
+     *  unfinished line.  If I have an output and now hold nothing, there
+     *  may still not be room for a LEN larger than BUFFER_SIZE. */
+    private void makeRoom(int len) {
+        if (_seekable) {
+            flush();
+            return;
+        }
+        if (_output != null && _lineStart > 0) {
+            write(ByteBuffer.wrap(_bytes, 0, _lineStart));
+            System.arraycopy(_bytes, _lineStart, _bytes, 0,
+                             _size - _lineStart);
+            _size -= _lineStart;
+            _lineStart = 0;
+        }
+        if (_bytes.length - _size < len && (_output == null || _size > 0)) {
+            _bytes = Arrays.copyOf(_bytes,
+                                   Math.max(2 * _bytes.length, _size + len));
+        }
+    }
+
+    /** Write all of BLOCK to my output. */
+    private void write(ByteBuffer block) {
+        try {
+            while (block.hasRemaining()) {
+                _output.write(block);
+            }
+        } catch (IOException excp) {
+            throw error("could not write output: %s", excp.getMessage());
+        }
+    }
+
+    /** Encoding of printed characters. */
+    private static final Charset CHARSET = Charset.defaultCharset();
+    /** Line separator ending each message line, encoded. */
+    private static final byte[] LINE_END =
+        System.lineSeparator().getBytes(CHARSET);
+    /** Largest number of bytes in an encoded character. */
+    private static final int MAX_CHAR_BYTES =
+        (int) Math.ceil(CHARSET.newEncoder().maxBytesPerChar());
+    /** True iff CHARSET is UTF-8, whose encoding I write directly. */
+    private static final boolean UTF8 = CHARSET.equals(UTF_8);
+    /** Characters below this are encoded as themselves in one byte. */
+    private static final char ASCII_LIMIT = 0x80;
+    /** Characters below this are encoded in two bytes of UTF-8. */
+    private static final char TWO_BYTE_LIMIT = 0x800;
+    /** Initial size of _bytes when I have no output. */
+    private static final int INITIAL_SIZE = 256;
+
+    /** Destination of output, or null if I hold it in memory. */
+    private final WritableByteChannel _output;
+    /** True iff _output is seekable, so that I may write out part of a
+     *  line. */
+    private final boolean _seekable;
+    /** Output not yet written. */
+    private byte[] _bytes;
+    /** Number of valid bytes in _bytes. */
+    private int _size;
+    /** Number of letters printed in the current group of five. */
+    private int _groupLength;
+    /** Position in _bytes at which the current message line starts, or 0
+     *  if it started before them. */
+    private int _lineStart;
+    /** Number of bytes of the current message line already written to
+     *  _output. */
+    private long _lineWritten;
+    /** Encoder of characters not written directly, or null until one is
+     *  needed. */
+    private CharsetEncoder _encoder;
+    /** Holds the character being encoded by _encoder. */
+    private CharBuffer _char;
+
+}
@@ -0,0 +1,108 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+/** The suite of all JUnit tests for the MessageWriter class.
+ *  @author Kaley Wong
+ */
+public class MessageWriterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /** Line separator. */
+    private static final String NL = System.lineSeparator();
+
+    /** Print MSG with WRITER as the continuation of its current line. */
+    private void write(MessageWriter writer, String msg) {
+        writer.write(msg.toCharArray(), 0, msg.length());
+    }
+
+    @Test
+    public void testGroups() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(Channels.newChannel(bytes));
+        write(writer, "ABC");
+        write(writer, "DEFGHIJ");
+        writer.endLine();
+        writer.endLine();
+        write(writer, "ABCDEFGHIJK");
+        writer.endLine();
+        assertEquals(0, bytes.size());
+        writer.flush();
+        assertEquals("ABCDE FGHIJ " + NL + NL + "ABCDE FGHIJ K" + NL,
+                     bytes.toString());
+    }
+
+    @Test
+    public void testNonASCII() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(Channels.newChannel(bytes));
+        String msg = "A\u00e9\u07ff\u0800\u4e2d\uffe0\ud800Z";
+        for (int k = 0; k < MessageWriter.BUFFER_SIZE / 4; k += 1) {
+            write(writer, msg);
+        }
+        writer.endLine();
+        writer.flush();
+        StringBuilder expected = new StringBuilder();
+        for (int k = 0; k < MessageWriter.BUFFER_SIZE / 4; k += 1) {
+            for (char ch : msg.toCharArray()) {
+                expected.append(ch);
+                if (expected.length() % 6 == 5) {
+                    expected.append(' ');
+                }
+            }
+        }
+        expected.append(NL);
+        assertArrayEquals(expected.toString()
+                          .getBytes(Charset.defaultCharset()),
+                          bytes.toByteArray());
+    }
+
+    @Test
+    public void testDiscardLine() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(Channels.newChannel(bytes));
+        write(writer, "ABCDEFG");
+        writer.endLine();
+        for (int k = 0; k < MessageWriter.BUFFER_SIZE / 4; k += 1) {
+            write(writer, "QRSTU");
+        }
+        assertEquals("ABCDE FG" + NL, bytes.toString());
+        writer.discardLine();
+        write(writer, "HIJ");
+        writer.endLine();
+        writer.flush();
+        assertEquals("ABCDE FG" + NL + "HIJ" + NL, bytes.toString());
+    }
+
+    @Test
+    public void testLongOutput() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MessageWriter writer = new MessageWriter(Channels.newChannel(bytes));
+        MessageWriter lines = new MessageWriter();
+        StringBuilder expected = new StringBuilder();
+        for (int k = 0; k < MessageWriter.BUFFER_SIZE / 4; k += 1) {
+            write(writer, "QRSTU");
+            write(lines, "VWXYZ");
+            expected.append("QRSTU ");
+        }
+        writer.endLine();
+        lines.endLine();
+        expected.append(NL);
+        assertTrue(bytes.size() > 0);
+        writer.writeLines(lines);
+        writer.flush();
+        expected.append(expected.toString().replace("QRSTU", "VWXYZ"));
+        assertEquals(expected.toString(), bytes.toString());
+    }
+
+}
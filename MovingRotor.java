@@ -15,20 +15,78 @@ class MovingRotor extends Rotor {
     MovingRotor(String name, Permutation perm, String notches) {
         super(name, perm);
         _notches = notches;
+        int n = size();
+        boolean[] notch = _notch = new boolean[n];
+        for (int i = 0; i < notches.length(); i++) {
+            int k = alphabet().toInt(notches.charAt(i));
+            if (k >= 0) {
+                notch[k] = true;
+            }
+        }
+        _notchCount = new int[n + 1];
+        int others = 0;
+        for (int k = 0; k < n; k++) {
+            _notchCount[k + 1] = _notchCount[k] + (notch[k] ? 1 : 0);
+            others += notch[k] ? 0 : 1;
+        }
+        _nonNotches = new int[others];
+        _adjacent = others == 0;
+        for (int k = 0, j = 0; k < n; k++) {
+            if (!notch[k]) {
+                _nonNotches[j++] = k;
+            } else if (notch[(k + 1) % n]) {
+                _adjacent = true;
+            }
+        }
+    }
+    /** Return the characters at which I have notches, as given to my
+     *  constructor. */
+    String notches() {
+        return _notches;
     }
+
     /** Return true iff I have a ratchet and can move. */
     boolean rotates() {
         return true;
     }
-    /** Returns true iff I am positioned to allow the rotor to my left
-     *  to advance. */
-    boolean atNotch() {
-        for (int i = 0; i < _notches.length(); i++) {
-            if (this._notches.charAt(i) == alphabet().toChar(setting())) {
-                return true;
-            }
+    @Override
+    boolean atNotch(int posn) {
+        return _notch[posn];
+    }
+
+    @Override
+    boolean[] notchTable() {
+        return _notch;
+    }
+
+    @Override
+    long notchesFrom(int posn, long count) {
+        int n = size();
+        int total = _notchCount[n];
+        int end = posn + (int) (count % n);
+        long result = count / n * total;
+        if (end <= n) {
+            return result + _notchCount[end] - _notchCount[posn];
         }
-        return false;
+        return result + total - _notchCount[posn] + _notchCount[end - n];
+    }
+
+    @Override
+    long spanOfNonNotches(int posn, long count) {
+        if (count == 0) {
+            return 0;
+        }
+        int n = size(), others = _nonNotches.length;
+        long turns = (count - 1) / others;
+        int rest = (int) ((count - 1) % others);
+        int before = posn - _notchCount[posn];
+        int last = _nonNotches[(before + rest) % others];
+        return turns * n + Math.floorMod(last - posn, n) + 1;
+    }
+
+    @Override
+    boolean adjacentNotches() {
+        return _adjacent;
     }
 
     @Override
@@ -38,5 +96,13 @@ class MovingRotor extends Rotor {
 
 /** the notches in the rotor.*/
     private String _notches;
+    /** True at each setting that is a notch. */
+    private final boolean[] _notch;
+    /** Number of notches at settings less than K, at K. */
+    private final int[] _notchCount;
+    /** The settings that are not notches, in increasing order. */
+    private final int[] _nonNotches;
+    /** True iff adjacentNotches(). */
+    private boolean _adjacent;
 
 }
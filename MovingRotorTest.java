@@ -76,5 +76,21 @@ public class MovingRotorTest {
         rotor.set(25);
         checkRotor("Rotor I set", UPPER_STRING, NAVALZ_MAP.get("I"));
     }
-}
 
+    @Test
+    public void checkTablesMatchArithmetic() {
+        Permutation perm = new Permutation(NAVALA.get("V"), UPPER);
+        Rotor plain = new Rotor("V", perm, false);
+        Rotor tabulated = new Rotor("V", perm, true);
+        for (int s = 0; s < UPPER.size(); s += 1) {
+            plain.set(s);
+            tabulated.set(s);
+            for (int p = 0; p < UPPER.size(); p += 1) {
+                assertEquals(plain.convertForward(p),
+                             tabulated.convertForward(p));
+                assertEquals(plain.convertBackward(p),
+                             tabulated.convertBackward(p));
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** A table of the log probabilities of the n-grams (sequences of N
+ *  letters) of an alphabet in some language, used to score candidate
+ *  decryptions.  The table is a flat array indexed by the letters'
+ *  alphabet indices, read as a number in base alphabet size.
+ *  @author Kaley Wong
+ */
+class NgramTable {
+
+    /** A table of the N-grams of ALPHA, in which each N-gram GRAMS[k] was
+     *  seen COUNTS[k] times.  Unseen N-grams, and those seen 0 times, are
+     *  scored as if seen a hundredth of a time. */
+    NgramTable(Alphabet alpha, int n, String[] grams, long[] counts) {
+        if (n < 1 || Math.pow(alpha.size(), n) > MAX_ENTRIES) {
+            throw error("cannot hold a table of %d-grams", n);
+        }
+        _n = n;
+        _size = alpha.size();
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total <= 0) {
+            throw error("n-gram table is empty");
+        }
+        _logProb = new float[(int) Math.pow(_size, n)];
+        Arrays.fill(_logProb, (float) Math.log10(UNSEEN / total));
+        for (int k = 0; k < grams.length; k++) {
+            if (grams[k].length() != n) {
+                throw error("n-gram %s is not of length %d", grams[k], n);
+            }
+            int index = 0;
+            for (int i = 0; i < n; i++) {
+                int letter = alpha.toInt(grams[k].charAt(i));
+                if (letter < 0) {
+                    throw error("n-gram %s is not in the alphabet", grams[k]);
+                }
+                index = index * _size + letter;
+            }
+            if (counts[k] > 0) {
+                _logProb[index] =
+                    (float) Math.log10((double) counts[k] / total);
+            }
+        }
+    }
+
+    /** Return the table of n-grams of ALPHA in the file named NAME, each
+     *  line of which holds an n-gram followed by its count. */
+    static NgramTable read(String name, Alphabet alpha) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(Paths.get(name)));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+        Lexer lex = new Lexer(text, 1);
+        String[] grams = new String[INITIAL_SIZE];
+        long[] counts = new long[INITIAL_SIZE];
+        int k;
+        for (k = 0; !lex.atEnd(); k++) {
+            if (k == grams.length) {
+                grams = Arrays.copyOf(grams, 2 * k);
+                counts = Arrays.copyOf(counts, 2 * k);
+            }
+            grams[k] = lex.word("n-gram");
+            counts[k] = lex.number("n-gram count");
+            if (grams[k].length() != grams[0].length()) {
+                throw lex.error("n-grams must all be the same length");
+            }
+        }
+        if (k == 0) {
+            throw error("%s holds no n-grams", name);
+        }
+        return new NgramTable(alpha, grams[0].length(),
+                              Arrays.copyOf(grams, k),
+                              Arrays.copyOf(counts, k));
+    }
+
+    /** Return N, the length of my n-grams. */
+    int length() {
+        return _n;
+    }
+
+    /** Return the total log probability of the n-grams of TEXT (alphabet
+     *  indices) that start at positions FROM up to TO. */
+    float score(int[] text, int from, int to) {
+        float result = 0;
+        for (int j = from; j < to; j++) {
+            result += score(text, j);
+        }
+        return result;
+    }
+
+    /** Return the log probability of the n-gram of TEXT (alphabet
+     *  indices) starting at position START. */
+    float score(int[] text, int start) {
+        int index = 0;
+        for (int i = start; i < start + _n; i++) {
+            index = index * _size + text[i];
+        }
+        return _logProb[index];
+    }
+
+    /** Count, relative to the total, given to an unseen n-gram. */
+    private static final double UNSEEN = 0.01;
+    /** Largest number of n-grams in a table. */
+    private static final double MAX_ENTRIES = 1 << 26;
+    /** Initial capacity of the arrays used to read a table. */
+    private static final int INITIAL_SIZE = 1024;
+
+    /** Length of my n-grams. */
+    private final int _n;
+    /** Size of my alphabet. */
+    private final int _size;
+    /** Log probability (base 10) of each n-gram, by index. */
+    private final float[] _logProb;
+
+}
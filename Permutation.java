@@ -1,8 +1,6 @@
 package enigma;
 
-
-import java.util.HashMap;
-
+import java.util.Arrays;
 
 import static enigma.EnigmaException.*;
 
@@ -19,112 +17,118 @@ class Permutation {
      *  Whitespace is ignored. */
     Permutation(String cycles, Alphabet alphabet) {
         _alphabet = alphabet;
-        pcycles = new HashMap<Character, Character>();
-        icycles = new HashMap<Character, Character>();
-        String permutetemp = cycles;
-        String inverttemp = cycles;
-        int a = 0;
-        int b = 0;
-        int c = 0;
-        int d = 0;
-        cycles.replaceAll("\\s+", "");
-        for (int i = 0; i < cycles.length(); i++) {
-            if (cycles.charAt(i) == '(' || cycles.charAt(i) == ')') {
-                continue;
-            }
-            for (int j = i + 1; j < cycles.length(); j++) {
-                if (cycles.charAt(j) == '(' || cycles.charAt(j) == ')'
-                        || cycles.charAt(j) == ' ') {
-                    continue;
-                }
-                if (cycles.charAt(i) == (cycles.charAt(j))) {
-                    throw new EnigmaException("No duplicates allowed cycle");
-                }
-            }
+        _size = alphabet.size();
+        _forward = new int[_size];
+        _inverse = new int[_size];
+        _seen = new boolean[_size];
+        for (int i = 0; i < _size; i++) {
+            _forward[i] = i;
+            _inverse[i] = i;
         }
+        int open = -1;
         for (int i = 0; i < cycles.length(); i++) {
-            if (permutetemp.charAt(i) == '(') {
-                a = i + 1;
-            }
-            if (permutetemp.charAt(i) == ')') {
-                b = i;
-                cpermute = permutetemp.substring(a, b);
-                for (int j = 0; j <= cpermute.length() - 1; j++) {
-                    if (j == cpermute.length() - 1) {
-                        pcycles.put(cpermute.charAt(j), cpermute.charAt(0));
-                    } else {
-                        pcycles.put(cpermute.charAt(j),
-                                cpermute.charAt(j + 1));
-                    }
-                }
+            char ch = cycles.charAt(i);
+            if (ch == '(') {
+                open = i + 1;
+            } else if (ch == ')' && open >= 0) {
+                addCycle(cycles.substring(open, i));
+                open = -1;
             }
         }
-        for (int i = 0; i < cycles.length(); i++) {
-            if (inverttemp.charAt(i) == '(') {
-                c = i + 1;
+        _seen = null;
+        _identity = mapsToSelf();
+    }
+
+    /** Set this Permutation to the one taking each index K of ALPHABET
+     *  to FORWARD[K].  FORWARD must contain each index exactly once. */
+    Permutation(int[] forward, Alphabet alphabet) {
+        _alphabet = alphabet;
+        _size = alphabet.size();
+        if (forward.length != _size) {
+            throw error("permutation table has the wrong size");
+        }
+        _forward = forward.clone();
+        _inverse = new int[_size];
+        Arrays.fill(_inverse, -1);
+        for (int i = 0; i < _size; i++) {
+            int k = _forward[i];
+            if (k < 0 || k >= _size || _inverse[k] >= 0) {
+                throw error("table is not a permutation");
             }
-            if (inverttemp.charAt(i) == ')') {
-                d = i;
-                cinvert = inverttemp.substring(c, d);
-                for (int j = cinvert.length() - 1; j >= 0; j--) {
-                    if (j == 0) {
-                        icycles.put(cinvert.charAt(j),
-                                cinvert.charAt(cinvert.length() - 1));
-                    } else {
-                        icycles.put(cinvert.charAt(j), cinvert.charAt(j - 1));
-                    }
-                }
+            _inverse[k] = i;
+        }
+        _identity = mapsToSelf();
+    }
+
+    /** Return true iff every index maps to itself under _forward. */
+    private boolean mapsToSelf() {
+        for (int i = 0; i < _size; i++) {
+            if (_forward[i] != i) {
+                return false;
             }
         }
+        return true;
     }
 
     /** Add the cycle c0->c1->...->cm->c0 to the permutation, where CYCLE is
      *  c0c1...cm. */
     private void addCycle(String cycle) {
+        int first = -1;
+        int prev = -1;
+        for (int i = 0; i < cycle.length(); i++) {
+            char ch = cycle.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                continue;
+            }
+            if (!_alphabet.contains(ch)) {
+                throw error("Letter %c in cycle is not in the alphabet", ch);
+            }
+            int k = _alphabet.toInt(ch);
+            if (_seen[k]) {
+                throw new EnigmaException("No duplicates allowed cycle");
+            }
+            _seen[k] = true;
+            if (prev < 0) {
+                first = k;
+            } else {
+                _forward[prev] = k;
+                _inverse[k] = prev;
+            }
+            prev = k;
+        }
+        if (prev >= 0) {
+            _forward[prev] = first;
+            _inverse[first] = prev;
+        }
     }
 
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
-        int r = p % size();
+        if (p >= 0 && p < _size) {
+            return p;
+        }
+        int r = p % _size;
         if (r < 0) {
-            r += size();
+            r += _size;
         }
         return r;
     }
 
     /** Returns the size of the alphabet I permute. */
     int size() {
-        return _alphabet.size();
-
+        return _size;
     }
 
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int a = wrap(p);
-        char letter = _alphabet.toChar(a);
-        if (a < 0) {
-            a += _alphabet.size();
-        }
-        if (pcycles.containsKey(letter)) {
-            return _alphabet.toInt(pcycles.get(_alphabet.toChar(a)));
-        }
-        return a;
-
+        return _forward[wrap(p)];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int a = wrap(c);
-        char letter = _alphabet.toChar(a);
-        if (a < 0) {
-            a += _alphabet.size();
-        }
-        if (icycles.containsKey(letter)) {
-            return _alphabet.toInt(icycles.get(_alphabet.toChar(a)));
-        }
-        return a;
+        return _inverse[wrap(c)];
     }
 
     /** Return the result of applying this permutation to the index of P
@@ -154,23 +158,31 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        for (int i = 0; i < _alphabet.size(); i++) {
-            if (permute(i) == i) {
+        for (int i = 0; i < _size; i++) {
+            if (_forward[i] == i) {
                 return false;
             }
         }
         return true;
     }
 
+    /** Return true iff this permutation maps every value to itself, as an
+     *  empty plugboard does. */
+    boolean identity() {
+        return _identity;
+    }
+
     /** Alphabet of this permutation.*/
     private Alphabet _alphabet;
-    /** Hashmap for Permute cycles.*/
-    private HashMap<Character, Character> pcycles;
-    /** Hashmap for invert cycles.*/
-    private HashMap<Character, Character> icycles;
-    /** cycles for permute.*/
-    private String cpermute;
-    /** cycles for invert.*/
-    private String cinvert;
+    /** Size of my alphabet. */
+    private final int _size;
+    /** Image of each index under this permutation. */
+    private final int[] _forward;
+    /** Image of each index under the inverse of this permutation. */
+    private final int[] _inverse;
+    /** True iff every index maps to itself. */
+    private boolean _identity;
+    /** Indices already placed in a cycle; only used while constructing. */
+    private boolean[] _seen;
 
 }
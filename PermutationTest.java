@@ -178,4 +178,37 @@ public class PermutationTest {
         checkPerm("identity", UPPER_STRING, UPPER_STRING);
     }
 
+    @Test(expected = EnigmaException.class)
+    public void testCycleNotInAlphabet() {
+        new Permutation("(ABX)", new Alphabet("ABC"));
+    }
+
+    @Test
+    public void testIdentity() {
+        assertTrue(new Permutation("", UPPER).identity());
+        assertTrue(new Permutation("(A) (B)", UPPER).identity());
+        assertFalse(new Permutation("(AB)", UPPER).identity());
+        Permutation p = new Permutation("(A B C)", new Alphabet("ABC"));
+        assertFalse(p.identity());
+        assertEquals(1, p.permute(0));
+        assertEquals(2, p.invert(0));
+        assertEquals(2, p.permute(-2));
+    }
+
+    @Test
+    public void testFromTable() {
+        Alphabet abc = new Alphabet("ABC");
+        Permutation p = new Permutation(new int[] { 1, 2, 0 }, abc);
+        assertEquals('B', p.permute('A'));
+        assertEquals('A', p.invert('B'));
+        assertEquals('C', p.invert('A'));
+        assertFalse(p.identity());
+        assertTrue(new Permutation(new int[] { 0, 1, 2 }, abc).identity());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testFromBadTable() {
+        new Permutation(new int[] { 1, 1, 0 }, new Alphabet("ABC"));
+    }
+
 }
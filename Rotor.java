@@ -1,17 +1,50 @@
 package enigma;
 
 
-/** Superclass that represents a rotor in the enigma machine.
+/** Superclass that represents a rotor in the enigma machine.  A rotor's
+ *  own setting is only used when it is driven by itself; a Machine keeps
+ *  the settings of its rotors on its own, so one Rotor may serve in any
+ *  number of machines at once.
  *  @author Kaley Wong
  */
 class Rotor {
 
-    /** A rotor named NAME whose permutation is given by PERM. */
+    /** Largest alphabet size for which rotors precompute their conversions
+     *  for every setting, from the property enigma.rotorTableLimit. */
+    static final int TABLE_LIMIT =
+        Integer.getInteger("enigma.rotorTableLimit", 64);
+
+    /** A rotor named NAME whose permutation is given by PERM, precomputing
+     *  its conversions iff its alphabet has at most TABLE_LIMIT
+     *  characters. */
     Rotor(String name, Permutation perm) {
+        this(name, perm, perm.size() <= TABLE_LIMIT);
+    }
+
+    /** A rotor named NAME whose permutation is given by PERM, precomputing
+     *  its conversions for every setting, in 2 * size() * size() ints, iff
+     *  TABULATE. */
+    Rotor(String name, Permutation perm, boolean tabulate) {
         _name = name;
         _permutation = perm;
         _hasPawl = false;
         _setting = 0;
+        _size = perm.size();
+        int n = _size;
+        if (n > 0 && tabulate) {
+            _forwardTable = new int[n * n];
+            _backwardTable = new int[n * n];
+            for (int s = 0; s < n; s++) {
+                for (int p = 0; p < n; p++) {
+                    _forwardTable[s * n + p] =
+                        perm.wrap(perm.permute(perm.wrap(p + s)) - s);
+                    _backwardTable[s * n + p] =
+                        perm.wrap(perm.invert(perm.wrap(p + s)) - s);
+                }
+            }
+        } else {
+            _forwardTable = _backwardTable = null;
+        }
     }
 
     /** Return my name. */
@@ -31,7 +64,7 @@ class Rotor {
 
     /** Return the size of my alphabet. */
     int size() {
-        return _permutation.size();
+        return _size;
     }
 
     /** Return true iff I have a ratchet and can move. */
@@ -63,20 +96,70 @@ class Rotor {
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        int temp = _permutation.permute((p + _setting) % size());
-        return _permutation.wrap(temp - _setting);
+        return convertForward(p, _setting);
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        int temp = _permutation.invert((e + _setting) % size());
-        return _permutation.wrap(temp - _setting);
+        return convertBackward(e, _setting);
+    }
+
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  according to my permutation when I am at setting SETTING. */
+    int convertForward(int p, int setting) {
+        if (_forwardTable != null) {
+            return _forwardTable[setting * _size + p];
+        }
+        int temp = _permutation.permute((p + setting) % _size);
+        return _permutation.wrap(temp - setting);
+    }
+
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  according to the inverse of my permutation when I am at setting
+     *  SETTING. */
+    int convertBackward(int e, int setting) {
+        if (_backwardTable != null) {
+            return _backwardTable[setting * _size + e];
+        }
+        int temp = _permutation.invert((e + setting) % _size);
+        return _permutation.wrap(temp - setting);
     }
 
     /** Returns true iff I am positioned to allow the rotor to my left
      *  to advance. */
     boolean atNotch() {
+        return atNotch(_setting);
+    }
+
+    /** Returns true iff I would allow the rotor to my left to advance
+     *  when at setting POSN.  By default, I have no notches. */
+    boolean atNotch(int posn) {
+        return false;
+    }
+
+    /** Return a table whose entry for each setting is true iff I am at a
+     *  notch there, or null if I have no notches.  The table is shared
+     *  and must not be modified. */
+    boolean[] notchTable() {
+        return null;
+    }
+
+    /** Return the number of notches among the COUNT consecutive settings
+     *  starting at POSN (wrapping around). */
+    long notchesFrom(int posn, long count) {
+        return 0;
+    }
+
+    /** Return the number of consecutive settings, starting at POSN, that
+     *  hold the first COUNT settings that are not notches. */
+    long spanOfNonNotches(int posn, long count) {
+        return count;
+    }
+
+    /** Return true iff two of my notches are at consecutive settings, or
+     *  every setting is a notch. */
+    boolean adjacentNotches() {
         return false;
     }
 
@@ -93,18 +176,26 @@ class Rotor {
     private final String _name;
 
     /** The permutation implemented by this rotor in its 0 position. */
-    private Permutation _permutation;
+    private final Permutation _permutation;
+    /** Size of my alphabet. */
+    private final int _size;
 
     /** Return the value of P modulo the size of this permutation. */
     final int wrap(int p) {
-        int r = p % size();
+        int r = p % _size;
         if (r < 0) {
-            r += size();
+            r += _size;
         }
         return r;
     }
     /** Setting used by rotor at current cycle.*/
     private int _setting;
+    /** Forward conversion of P at setting S, at S * _size + P, or null
+     *  if my alphabet is too large to tabulate. */
+    private final int[] _forwardTable;
+    /** Backward conversion of E at setting S, at S * _size + E, or null
+     *  if my alphabet is too large to tabulate. */
+    private final int[] _backwardTable;
     /** Return if this rotor has a pawl or not.*/
     private boolean _hasPawl;
     /** returns true or false if rotor has pawl.*/
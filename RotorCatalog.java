@@ -0,0 +1,97 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/** An immutable description of the machines a configuration allows: their
+ *  alphabet, their numbers of rotor slots and pawls, and the rotors
+ *  available to them.  A catalog and its rotors are never modified, so
+ *  any number of machines, on any number of threads, may share one.
+ *  Rotors are indexed by name, and each is built from its definition
+ *  only when it is first found.
+ *  @author Kaley Wong
+ */
+class RotorCatalog {
+
+    /** A catalog of machines with alphabet ALPHA, 1 < NUMROTORS rotor
+     *  slots, and 0 <= PAWLS < NUMROTORS pawls, choosing their rotors from
+     *  ALLROTORS. */
+    RotorCatalog(Alphabet alpha, int numRotors, int pawls,
+                 Collection<Rotor> allRotors) {
+        this(alpha, numRotors, pawls, definitions(allRotors));
+    }
+
+    /** A catalog of machines with alphabet ALPHA, 1 < NUMROTORS rotor
+     *  slots, and 0 <= PAWLS < NUMROTORS pawls, choosing their rotors from
+     *  those defined by DEFINITIONS.  Where several definitions have the
+     *  same name, the last is used. */
+    RotorCatalog(Alphabet alpha, int numRotors, int pawls,
+                 List<RotorDefinition> definitions) {
+        _alphabet = alpha;
+        _numRotors = numRotors;
+        _numPawls = pawls;
+        _definitions =
+            Collections.unmodifiableList(new ArrayList<>(definitions));
+        _index = new HashMap<>();
+        for (RotorDefinition definition : _definitions) {
+            _index.put(definition.name(), definition);
+        }
+    }
+
+    /** Return definitions of ROTORS, which are already built. */
+    private static List<RotorDefinition> definitions(
+        Collection<Rotor> rotors) {
+        ArrayList<RotorDefinition> result = new ArrayList<>();
+        for (Rotor rotor : rotors) {
+            result.add(new RotorDefinition(rotor));
+        }
+        return result;
+    }
+
+    /** Return the alphabet of my machines. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the number of rotor slots of my machines. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls of my machines. */
+    int numPawls() {
+        return _numPawls;
+    }
+
+    /** Return all my rotors, in the order defined, building any that have
+     *  not been built yet. */
+    List<Rotor> rotors() {
+        ArrayList<Rotor> result = new ArrayList<>();
+        for (RotorDefinition definition : _definitions) {
+            result.add(definition.rotor());
+        }
+        return result;
+    }
+
+    /** Return the last of my rotors named NAME, or null if there is
+     *  none. */
+    Rotor find(String name) {
+        RotorDefinition definition = _index.get(name);
+        return definition == null ? null : definition.rotor();
+    }
+
+    /** Alphabet of my machines. */
+    private final Alphabet _alphabet;
+    /** Number of rotor slots of my machines. */
+    private final int _numRotors;
+    /** Number of pawls of my machines. */
+    private final int _numPawls;
+    /** Definitions of the available rotors, in order. */
+    private final List<RotorDefinition> _definitions;
+    /** The last of _definitions with each name. */
+    private final HashMap<String, RotorDefinition> _index;
+
+}
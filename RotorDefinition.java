@@ -0,0 +1,130 @@
+package enigma;
+
+import java.nio.IntBuffer;
+
+import static enigma.EnigmaException.*;
+
+/** The definition of a rotor in a configuration, from which the Rotor
+ *  itself is built only when it is first needed.  Building is memoized
+ *  and safe to request from any number of threads at once.
+ *  @author Kaley Wong
+ */
+class RotorDefinition {
+
+    /** Kind of a moving rotor. */
+    static final int MOVING = 0;
+    /** Kind of a fixed rotor that is not a reflector. */
+    static final int FIXED = 1;
+    /** Kind of a reflector. */
+    static final int REFLECTOR = 2;
+
+    /** The definition of a rotor of kind KIND (MOVING, FIXED, or
+     *  REFLECTOR) named NAME, with notches NOTCHES (empty unless MOVING),
+     *  whose permutation over ALPHABET is given by CYCLES.  The
+     *  definition begins at column COLUMN of line LINE of a
+     *  configuration file, where errors in CYCLES are reported. */
+    RotorDefinition(int kind, String name, String notches, String cycles,
+                    Alphabet alphabet, int line, int column) {
+        this(kind, name, notches, alphabet);
+        _cycles = cycles;
+        _line = line;
+        _column = column;
+    }
+
+    /** The definition of a rotor of kind KIND (MOVING, FIXED, or
+     *  REFLECTOR) named NAME, with notches NOTCHES (empty unless MOVING),
+     *  that takes each index K of ALPHABET to TABLE.get(K).  TABLE, such
+     *  as part of a mapped snapshot, is read only when the rotor is
+     *  built. */
+    RotorDefinition(int kind, String name, String notches, IntBuffer table,
+                    Alphabet alphabet) {
+        this(kind, name, notches, alphabet);
+        _table = table;
+    }
+
+    /** The definition of ROTOR, which is already built. */
+    RotorDefinition(Rotor rotor) {
+        this(rotor.rotates() ? MOVING : rotor.reflecting() ? REFLECTOR : FIXED,
+             rotor.name(),
+             rotor.rotates() ? ((MovingRotor) rotor).notches() : "",
+             rotor.alphabet());
+        _rotor = rotor;
+    }
+
+    /** The definition of a rotor of kind KIND named NAME, with notches
+     *  NOTCHES, over ALPHABET. */
+    private RotorDefinition(int kind, String name, String notches,
+                            Alphabet alphabet) {
+        _kind = kind;
+        _name = name;
+        _notches = notches;
+        _alphabet = alphabet;
+    }
+
+    /** Return the name of my rotor. */
+    String name() {
+        return _name;
+    }
+
+    /** Return my rotor, building it if this is the first request. */
+    Rotor rotor() {
+        Rotor result = _rotor;
+        if (result == null) {
+            synchronized (this) {
+                result = _rotor;
+                if (result == null) {
+                    result = _rotor = build();
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return a new rotor as I define it. */
+    private Rotor build() {
+        Permutation perm;
+        if (_cycles == null) {
+            int[] table = new int[_table.limit()];
+            _table.get(0, table);
+            try {
+                perm = new Permutation(table, _alphabet);
+            } catch (EnigmaException excp) {
+                throw error("rotor %s: %s", _name, excp.getMessage());
+            }
+        } else {
+            try {
+                perm = new Permutation(_cycles, _alphabet);
+            } catch (EnigmaException excp) {
+                throw Lexer.errorAt(_line, _column, "rotor %s: %s", _name,
+                                    excp.getMessage());
+            }
+        }
+        switch (_kind) {
+        case MOVING:
+            return new MovingRotor(_name, perm, _notches);
+        case FIXED:
+            return new FixedRotor(_name, perm);
+        default:
+            return new Reflector(_name, perm);
+        }
+    }
+
+    /** Kind of my rotor: MOVING, FIXED, or REFLECTOR. */
+    private final int _kind;
+    /** Name of my rotor. */
+    private final String _name;
+    /** Notches of my rotor, if it moves. */
+    private final String _notches;
+    /** Alphabet of my rotor. */
+    private final Alphabet _alphabet;
+    /** Cycles of my rotor's permutation, or null if given by _table. */
+    private String _cycles;
+    /** Image of each index under my rotor's permutation, or null if given
+     *  by _cycles. */
+    private IntBuffer _table;
+    /** Line and column of my definition in its configuration file. */
+    private int _line, _column;
+    /** My rotor, once built. */
+    private volatile Rotor _rotor;
+
+}
@@ -0,0 +1,80 @@
+package enigma;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A bounded cache of the machine states produced by settings lines,
+ *  which forgets the least recently used line when it is full.  Lines
+ *  are compared after normalizing their whitespace, so that lines that
+ *  differ only in spacing share an entry.
+ *  @author Kaley Wong
+ */
+class SettingsCache {
+
+    /** A cache holding the states of at most CAPACITY settings lines. */
+    SettingsCache(int capacity) {
+        _capacity = capacity;
+        _states = new LinkedHashMap<String, MachineState>(
+            capacity, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                Map.Entry<String, MachineState> eldest) {
+                return size() > _capacity;
+            }
+        };
+    }
+
+    /** Return SETTINGS with leading and trailing whitespace removed, and
+     *  each other run of whitespace replaced by a single blank. */
+    static String normalize(String settings) {
+        int len = settings.length();
+        boolean normal = len == 0
+            || !Character.isWhitespace(settings.charAt(0))
+               && !Character.isWhitespace(settings.charAt(len - 1));
+        for (int i = 0; normal && i < len; i++) {
+            char ch = settings.charAt(i);
+            normal = ch == ' '
+                ? settings.charAt(i - 1) != ' '
+                : !Character.isWhitespace(ch);
+        }
+        if (normal) {
+            return settings;
+        }
+        StringBuilder result = new StringBuilder(len);
+        boolean blank = false;
+        for (int i = 0; i < len; i++) {
+            char ch = settings.charAt(i);
+            if (Character.isWhitespace(ch)) {
+                blank = result.length() > 0;
+            } else {
+                if (blank) {
+                    result.append(' ');
+                    blank = false;
+                }
+                result.append(ch);
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the state produced by the normalized settings line KEY, or
+     *  null if I do not hold it. */
+    synchronized MachineState get(String key) {
+        return _states.get(key);
+    }
+
+    /** Record that the normalized settings line KEY produces STATE. */
+    synchronized void put(String key, MachineState state) {
+        _states.put(key, state);
+    }
+
+    /** Load factor of _states. */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /** Largest number of settings lines I hold. */
+    private final int _capacity;
+    /** State produced by each normalized settings line, least recently
+     *  used first. */
+    private final LinkedHashMap<String, MachineState> _states;
+
+}
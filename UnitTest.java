@@ -12,7 +12,16 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         System.exit(textui.runClasses(PermutationTest.class,
-                                      MovingRotorTest.class));
+                                      AlphabetTest.class,
+                                      MachineTest.class,
+                                      LexerTest.class,
+                                      MessageWriterTest.class,
+                                      KeySearchTest.class,
+                                      MovingRotorTest.class,
+                                      EnigmaServerTest.class,
+                                      MainTest.class,
+                                      MessageReaderTest.class,
+                                      ConfigSnapshotTest.class));
     }
 
 }
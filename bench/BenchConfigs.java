@@ -0,0 +1,156 @@
+package enigma;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/** Synthetic configurations, settings lines and messages for the
+ *  benchmarks, generated from a seed so that every run measures the
+ *  same machines.  A configuration of N rotors has a reflector, R, and
+ *  N + 1 moving rotors, M1 to M(N+1), each with one notch; all but the
+ *  reflector move.  Alphabets have an even number of letters, so that
+ *  reflectors may pair them all.  Those of more than 62 letters are not
+ *  ASCII, and so are read back correctly from configuration files only
+ *  when the default charset is Unicode, as benchmarks that read them
+ *  set it.
+ *  @author Kaley Wong
+ */
+class BenchConfigs {
+
+    /** Return an alphabet of SIZE letters: the ASCII letters and digits,
+     *  followed by Latin-1 and later characters. */
+    static String alphabet(int size) {
+        StringBuilder result = new StringBuilder();
+        for (int k = 0; k < size; k++) {
+            if (k < ASCII_LETTERS.length()) {
+                result.append(ASCII_LETTERS.charAt(k));
+            } else {
+                result.append((char) (EXTRA_LETTERS + k));
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the text of a configuration with an alphabet of ALPHABETSIZE
+     *  letters and NUMROTORS rotors, generated from SEED. */
+    static String config(int alphabetSize, int numRotors, long seed) {
+        Random random = new Random(seed);
+        String alpha = alphabet(alphabetSize);
+        StringBuilder result = new StringBuilder();
+        result.append(alpha).append('\n')
+            .append(numRotors).append(' ').append(numRotors - 1).append('\n');
+        result.append(" R R");
+        List<Character> letters = shuffled(alpha, random);
+        for (int k = 0; k < letters.size(); k += 2) {
+            result.append(" (").append(letters.get(k))
+                .append(letters.get(k + 1)).append(')');
+        }
+        result.append('\n');
+        for (int r = 1; r <= numRotors + 1; r++) {
+            result.append(" M").append(r).append(" M")
+                .append(alpha.charAt(random.nextInt(alphabetSize)))
+                .append(' ').append(cycle(alpha, random)).append('\n');
+        }
+        return result.toString();
+    }
+
+    /** Return a cycle of all the letters of ALPHA, such as "(DACB)", in
+     *  an order chosen with RANDOM. */
+    static String cycle(String alpha, Random random) {
+        StringBuilder result = new StringBuilder("(");
+        for (char ch : shuffled(alpha, random)) {
+            result.append(ch);
+        }
+        return result.append(')').toString();
+    }
+
+    /** Return a settings line for a configuration from config(ALPHABETSIZE,
+     *  NUMROTORS, ...), whose plugboard pairs the fraction PLUGDENSITY of
+     *  the letters, chosen with RANDOM. */
+    static String settings(int alphabetSize, int numRotors,
+                           double plugDensity, Random random) {
+        String alpha = alphabet(alphabetSize);
+        StringBuilder result = new StringBuilder("* R");
+        List<Integer> rotors = new ArrayList<>();
+        for (int r = 1; r <= numRotors + 1; r++) {
+            rotors.add(r);
+        }
+        Collections.shuffle(rotors, random);
+        for (int i = 1; i < numRotors; i++) {
+            result.append(" M").append(rotors.get(i));
+        }
+        result.append(' ');
+        for (int i = 1; i < numRotors; i++) {
+            result.append(alpha.charAt(random.nextInt(alphabetSize)));
+        }
+        List<Character> letters = shuffled(alpha, random);
+        int pairs = (int) (plugDensity * alphabetSize / 2);
+        for (int k = 0; k < 2 * pairs; k += 2) {
+            result.append(" (").append(letters.get(k))
+                .append(letters.get(k + 1)).append(')');
+        }
+        return result.toString();
+    }
+
+    /** Return a message of LENGTH letters of an alphabet of ALPHABETSIZE
+     *  letters, chosen with RANDOM. */
+    static String message(int alphabetSize, int length, Random random) {
+        String alpha = alphabet(alphabetSize);
+        char[] result = new char[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = alpha.charAt(random.nextInt(alphabetSize));
+        }
+        return new String(result);
+    }
+
+    /** Return a Main reading the configuration CONFIG, from a temporary
+     *  file, with empty input. */
+    static Main newMain(String config) {
+        try {
+            File configFile = File.createTempFile("bench", ".conf");
+            File inputFile = File.createTempFile("bench", ".in");
+            configFile.deleteOnExit();
+            inputFile.deleteOnExit();
+            Files.write(configFile.toPath(), config.getBytes());
+            return new Main(new String[] { configFile.getPath(),
+                                           inputFile.getPath() });
+        } catch (IOException excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /** Return a machine of the configuration config(ALPHABETSIZE,
+     *  NUMROTORS, SEED), set up with a settings line whose plugboard
+     *  pairs the fraction PLUGDENSITY of the letters. */
+    static Machine machine(int alphabetSize, int numRotors,
+                           double plugDensity, long seed) {
+        Main main = newMain(config(alphabetSize, numRotors, seed));
+        Machine result = main.readConfig();
+        main.setUp(result, settings(alphabetSize, numRotors, plugDensity,
+                                    new Random(seed)), 1);
+        return result;
+    }
+
+    /** Return the letters of ALPHA in an order chosen with RANDOM. */
+    private static List<Character> shuffled(String alpha, Random random) {
+        List<Character> result = new ArrayList<>();
+        for (char ch : alpha.toCharArray()) {
+            result.add(ch);
+        }
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    /** The first letters of generated alphabets. */
+    private static final String ASCII_LETTERS =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    /** Offset from their index of the other letters of generated
+     *  alphabets. */
+    private static final int EXTRA_LETTERS = 0xC0;
+
+}
@@ -0,0 +1,55 @@
+package enigma;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Main.readConfig, parsing a generated configuration.
+ *  @author Kaley Wong
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConfigBench {
+
+    /** Number of letters in the alphabet. */
+    @Param({ "26", "62", "256" })
+    public int alphabetSize;
+
+    /** Number of rotor slots. */
+    @Param({ "3", "5", "9" })
+    public int numRotors;
+
+    /** Set up a Main with a generated configuration. */
+    @Setup
+    public void setUp() {
+        _main = BenchConfigs.newMain(BenchConfigs.config(alphabetSize,
+                                                         numRotors, SEED));
+    }
+
+    /** Return a machine of the parsed configuration. */
+    @Benchmark
+    public Machine readConfig() {
+        return _main.readConfig();
+    }
+
+    /** Seed of the generated configuration. */
+    private static final long SEED = 61;
+
+    /** The Main reading the configuration. */
+    private Main _main;
+
+}
@@ -0,0 +1,126 @@
+package enigma;
+
+import java.io.PrintStream;
+
+/** A histogram of non-negative values, such as latencies, in the manner
+ *  of HdrHistogram: values are counted in buckets whose width is a fixed
+ *  fraction (at most 1/64) of their magnitude, so that any value, however
+ *  large, is recorded in constant time and space and its percentiles are
+ *  reported to within that fraction.
+ *  @author Kaley Wong
+ */
+class Histogram {
+
+    /** Record VALUE, which must be non-negative. */
+    void record(long value) {
+        _counts[index(value)] += 1;
+        _total += 1;
+        _sum += value;
+        _min = Math.min(_min, value);
+        _max = Math.max(_max, value);
+    }
+
+    /** Return the number of values recorded. */
+    long count() {
+        return _total;
+    }
+
+    /** Return the largest value recorded, or 0 if none. */
+    long max() {
+        return _total == 0 ? 0 : _max;
+    }
+
+    /** Return the mean of the values recorded, or 0 if none. */
+    double mean() {
+        return _total == 0 ? 0 : (double) _sum / _total;
+    }
+
+    /** Return the sum of the values recorded. */
+    long sum() {
+        return _sum;
+    }
+
+    /** Return a value no smaller than PERCENTILE percent of the values
+     *  recorded, and within one bucket of the least such, or 0 if none
+     *  are recorded. */
+    long percentile(double percentile) {
+        if (_total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * _total));
+        long seen = 0;
+        for (int i = 0; i < _counts.length; i++) {
+            seen += _counts[i];
+            if (seen >= rank) {
+                return Math.max(_min, Math.min(_max, highest(i)));
+            }
+        }
+        return _max;
+    }
+
+    /** Print to OUT a table of the percentiles of my values, divided by
+     *  SCALE and labeled as in UNIT, followed by a summary. */
+    void print(PrintStream out, String unit, double scale) {
+        out.printf("%14s %12s %12s %14s%n", "Value (" + unit + ")",
+                   "Percentile", "TotalCount", "1/(1-Percentile)");
+        for (double percentile : PERCENTILES) {
+            long value = percentile(percentile);
+            out.printf("%14.3f %12.6f %12d %14s%n", value / scale,
+                       percentile / 100, countUpTo(value),
+                       percentile == 100 ? "inf"
+                       : String.format("%.2f", 100 / (100 - percentile)));
+        }
+        out.printf("#[Mean = %.3f, Max = %.3f, Total count = %d]%n",
+                   mean() / scale, max() / scale, _total);
+    }
+
+    /** Return the number of values recorded in buckets no higher than
+     *  that of VALUE. */
+    private long countUpTo(long value) {
+        long result = 0;
+        for (int i = 0; i <= index(value); i++) {
+            result += _counts[i];
+        }
+        return result;
+    }
+
+    /** Return the bucket of VALUE.  Values below 2 * HALF have a bucket
+     *  each; above that, each power of two is split into HALF buckets. */
+    private static int index(long value) {
+        if (value < 2 * HALF) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value)
+            - SUB_BUCKET_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /** Return the highest value in bucket INDEX. */
+    private static long highest(int index) {
+        if (index < 2 * HALF) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long sub = index - shift * HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /** Bits of each value kept exactly. */
+    private static final int SUB_BUCKET_BITS = 7;
+    /** Number of buckets into which each power of two is split. */
+    private static final int HALF = 1 << (SUB_BUCKET_BITS - 1);
+    /** Percentiles printed. */
+    private static final double[] PERCENTILES = {
+        0, 50, 75, 90, 95, 99, 99.9, 99.99, 99.999, 100
+    };
+
+    /** Number of values recorded in each bucket. */
+    private final long[] _counts = new long[index(Long.MAX_VALUE) + 1];
+    /** Number of values recorded. */
+    private long _total;
+    /** Sum of the values recorded. */
+    private long _sum;
+    /** Smallest and largest values recorded. */
+    private long _min = Long.MAX_VALUE, _max;
+
+}
@@ -0,0 +1,369 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+/** An end-to-end load test of Main: it generates synthetic
+ *  configurations and inputs of any size, and runs Main on them in this
+ *  JVM, reporting its throughput, peak heap, GC pauses and the latency of
+ *  each message line.  It needs nothing but the JDK and this package.
+ *
+ *  Usage:
+ *
+ *    java enigma.LoadTest generate CONFIG INPUT [OPTIONS]
+ *
+ *  writes a configuration to CONFIG and an input of messages for it to
+ *  INPUT, streaming it so that inputs may be far larger than memory.
+ *  Each message is one line, preceded by a settings line (always, for
+ *  the first).  OPTIONS are
+ *
+ *    --size N        the input's approximate size in characters, with an
+ *                    optional suffix K, M or G (default 1M);
+ *    --alphabet N    number of letters (an even number; default 26);
+ *    --rotors N      number of rotor slots (default 5);
+ *    --settings F    fraction of messages preceded by a settings line
+ *                    (default 0.01);
+ *    --length N      mean message length, in letters (default 100);
+ *                    lengths are drawn from a geometric distribution;
+ *    --plugs F       fraction of letters paired by the plugboard
+ *                    (default 0.5);
+ *    --seed N        seed of the random choices (default 61).
+ *
+ *    java enigma.LoadTest run [--parallel] CONFIG INPUT [OUTPUT]
+ *
+ *  converts INPUT as Main would (to OUTPUT, or /dev/null) and reports
+ *  characters converted per second, the peak heap used, the GC pauses,
+ *  and histograms of the GC pauses and of the time taken by each message
+ *  line.  Message latencies are measured only without --parallel; the
+ *  first includes reading the configuration.  INPUT is read once
+ *  beforehand, to count its characters and to bring it into the page
+ *  cache.
+ *  @author Kaley Wong
+ */
+public class LoadTest {
+
+    /** Generate or run a load test, as given by ARGS (see above). */
+    public static void main(String... args) {
+        try {
+            if (args.length >= 3 && args[0].equals("generate")) {
+                generate(args);
+                return;
+            } else if (args.length >= 3 && args[0].equals("run")) {
+                run(args);
+                return;
+            }
+            System.err.println("Usage: java enigma.LoadTest generate CONFIG "
+                               + "INPUT [OPTIONS]");
+            System.err.println("       java enigma.LoadTest run "
+                               + "[--parallel] CONFIG INPUT [OUTPUT]");
+        } catch (EnigmaException | IOException
+                 | NumberFormatException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Generate a configuration and input as given by ARGS. */
+    private static void generate(String[] args) throws IOException {
+        long size = 1 << 20;
+        int alphabetSize = 26, numRotors = 5, meanLength = 100;
+        double settingsDensity = 0.01, plugDensity = 0.5;
+        long seed = 61;
+        for (int k = 3; k < args.length; k += 2) {
+            if (k + 1 == args.length) {
+                throw EnigmaException.error("%s needs a value", args[k]);
+            }
+            String value = args[k + 1];
+            switch (args[k]) {
+            case "--size":
+                size = parseSize(value);
+                break;
+            case "--alphabet":
+                alphabetSize = Integer.parseInt(value);
+                break;
+            case "--rotors":
+                numRotors = Integer.parseInt(value);
+                break;
+            case "--settings":
+                settingsDensity = Double.parseDouble(value);
+                break;
+            case "--length":
+                meanLength = Integer.parseInt(value);
+                break;
+            case "--plugs":
+                plugDensity = Double.parseDouble(value);
+                break;
+            case "--seed":
+                seed = Long.parseLong(value);
+                break;
+            default:
+                throw EnigmaException.error("unknown option %s", args[k]);
+            }
+        }
+        if (alphabetSize < 2 || alphabetSize % 2 != 0 || numRotors < 2
+            || meanLength < 1) {
+            throw EnigmaException.error("bad alphabet, rotors or length");
+        }
+        Charset charset = Charset.defaultCharset();
+        String alpha = BenchConfigs.alphabet(alphabetSize);
+        if (!charset.newEncoder().canEncode(alpha)) {
+            throw EnigmaException.error("the default charset, %s, cannot "
+                                        + "hold %d letters", charset,
+                                        alphabetSize);
+        }
+        try (Writer config = open(args[1], charset)) {
+            config.write(BenchConfigs.config(alphabetSize, numRotors, seed));
+        }
+        Random random = new Random(seed);
+        long written = 0, messages = 0, settingsLines = 0;
+        double logContinue = Math.log1p(-1.0 / meanLength);
+        char[] line = new char[BUFFER_SIZE];
+        try (Writer input = open(args[2], charset)) {
+            while (written < size) {
+                if (messages == 0 || random.nextDouble() < settingsDensity) {
+                    String settings =
+                        BenchConfigs.settings(alphabetSize, numRotors,
+                                              plugDensity, random);
+                    input.write(settings);
+                    input.write('\n');
+                    written += settings.length() + 1;
+                    settingsLines += 1;
+                }
+                long length = 1;
+                if (meanLength > 1) {
+                    length += (long) (Math.log(1 - random.nextDouble())
+                                      / logContinue);
+                }
+                for (long left = length; left > 0; left -= line.length) {
+                    int n = (int) Math.min(left, line.length);
+                    for (int i = 0; i < n; i++) {
+                        line[i] = alpha.charAt(random.nextInt(alphabetSize));
+                    }
+                    input.write(line, 0, n);
+                }
+                input.write('\n');
+                written += length + 1;
+                messages += 1;
+            }
+        }
+        System.out.printf("wrote %d characters: %d messages, %d settings "
+                          + "lines%n", written, messages, settingsLines);
+    }
+
+    /** Run Main as given by ARGS and report on it. */
+    private static void run(String[] args) throws IOException {
+        List<String> mainArgs = new ArrayList<>();
+        boolean parallel = args[1].equals("--parallel");
+        if (parallel) {
+            mainArgs.add("--parallel");
+        }
+        int first = parallel ? 2 : 1;
+        if (args.length - first < 2 || args.length - first > 3) {
+            throw EnigmaException.error("run needs CONFIG INPUT [OUTPUT]");
+        }
+        mainArgs.add(args[first]);
+        mainArgs.add(args[first + 1]);
+        mainArgs.add(args.length - first == 3 ? args[first + 2]
+                     : "/dev/null");
+        long characters = countCharacters(args[first + 1]);
+
+        Histogram latencies = new Histogram();
+        GcMonitor gc = new GcMonitor();
+        System.gc();
+        Main main = new Main(mainArgs.toArray(new String[0]));
+        long[] last = new long[1];
+        main.setLineListener(() -> {
+            long now = System.nanoTime();
+            latencies.record(now - last[0]);
+            last[0] = now;
+        });
+        long start = System.nanoTime();
+        last[0] = start;
+        main.process();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        gc.finish();
+
+        System.out.printf("characters: %d in %.3f s (%.0f chars/s)%n",
+                          characters, seconds, characters / seconds);
+        System.out.printf("peak heap: %.1f MB (max %.1f MB)%n",
+                          gc.peakHeap() / MB, maxHeap() / MB);
+        Histogram pauses = gc.pauses();
+        System.out.printf("GC pauses: %d, %.1f ms in all (%.2f%% of run)%n",
+                          pauses.count(), pauses.sum() / 1e3,
+                          pauses.sum() / 1e4 / seconds);
+        pauses.print(System.out, "ms", 1e3);
+        if (parallel) {
+            System.out.println("message latencies: not measured with "
+                               + "--parallel");
+        } else {
+            System.out.printf("message latencies: %d messages%n",
+                              latencies.count());
+            latencies.print(System.out, "us", 1e3);
+        }
+    }
+
+    /** Return the number of characters in the file named NAME. */
+    private static long countCharacters(String name) throws IOException {
+        char[] buffer = new char[MessageReader.BUFFER_SIZE];
+        long result = 0;
+        try (Reader input = new BufferedReader(
+                 new InputStreamReader(new FileInputStream(name)))) {
+            for (int len; (len = input.read(buffer)) >= 0;) {
+                result += len;
+            }
+        }
+        return result;
+    }
+
+    /** Return a writer to the file named NAME, in CHARSET. */
+    private static Writer open(String name, Charset charset)
+        throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                   new FileOutputStream(name), charset), BUFFER_SIZE);
+    }
+
+    /** Return the size given by VALUE, a number with an optional suffix
+     *  K, M or G. */
+    private static long parseSize(String value) {
+        int suffix = "KMG".indexOf(Character.toUpperCase(
+                         value.charAt(value.length() - 1)));
+        if (suffix < 0) {
+            return Long.parseLong(value);
+        }
+        return Long.parseLong(value.substring(0, value.length() - 1))
+            << (10 * (suffix + 1));
+    }
+
+    /** Return the most heap the JVM may use, in bytes. */
+    private static long maxHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
+            .getMax();
+    }
+
+    /** A record of the garbage collections made while it listens.  The
+     *  heap is at its peak just before a collection, or at the end. */
+    private static class GcMonitor implements NotificationListener {
+
+        /** Start listening to every collector. */
+        GcMonitor() {
+            for (MemoryPoolMXBean pool
+                     : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    _heapPools.add(pool.getName());
+                }
+            }
+            for (GarbageCollectorMXBean collector
+                     : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector)
+                    .addNotificationListener(this, null, null);
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification note,
+                                                    Object handback) {
+            if (!note.getType().equals(GarbageCollectionNotificationInfo
+                                       .GARBAGE_COLLECTION_NOTIFICATION)) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from(
+                    (CompositeData) note.getUserData());
+            GcInfo gc = info.getGcInfo();
+            _peakHeap = Math.max(_peakHeap,
+                                 heapUsed(gc.getMemoryUsageBeforeGc()));
+            if (!info.getGcName().contains("Concurrent")) {
+                _pauses.record(gc.getDuration() * 1000);
+            }
+        }
+
+        /** Stop listening, once notifications of the collections made so
+         *  far have had time to arrive. */
+        void finish() {
+            try {
+                Thread.sleep(NOTIFICATION_DELAY);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            for (GarbageCollectorMXBean collector
+                     : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    ((NotificationEmitter) collector)
+                        .removeNotificationListener(this);
+                } catch (ListenerNotFoundException excp) {
+                    continue;
+                }
+            }
+            synchronized (this) {
+                _peakHeap = Math.max(_peakHeap, ManagementFactory
+                                     .getMemoryMXBean().getHeapMemoryUsage()
+                                     .getUsed());
+            }
+        }
+
+        /** Return the most heap used, in bytes. */
+        synchronized long peakHeap() {
+            return _peakHeap;
+        }
+
+        /** Return the histogram of GC pauses, in microseconds (measured
+         *  to the millisecond). */
+        synchronized Histogram pauses() {
+            return _pauses;
+        }
+
+        /** Return the heap used according to USAGE, by memory pool. */
+        private long heapUsed(Map<String, MemoryUsage> usage) {
+            long result = 0;
+            for (Map.Entry<String, MemoryUsage> entry : usage.entrySet()) {
+                if (_heapPools.contains(entry.getKey())) {
+                    result += entry.getValue().getUsed();
+                }
+            }
+            return result;
+        }
+
+        /** Milliseconds to wait for the last notifications. */
+        private static final long NOTIFICATION_DELAY = 200;
+
+        /** Names of the memory pools of the heap. */
+        private final Set<String> _heapPools = new HashSet<>();
+        /** Most heap used, in bytes. */
+        private long _peakHeap;
+        /** GC pauses, in microseconds. */
+        private final Histogram _pauses = new Histogram();
+    }
+
+    /** Size of the generator's output buffers, in characters. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Bytes in a megabyte. */
+    private static final double MB = 1 << 20;
+
+}
@@ -0,0 +1,89 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Machine.convert, timed per message: converting each
+ *  letter's index with convert(int), and converting the whole message
+ *  with convert(String).
+ *  @author Kaley Wong
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MachineBench {
+
+    /** Number of letters in the alphabet. */
+    @Param({ "26", "62", "256" })
+    public int alphabetSize;
+
+    /** Number of rotor slots. */
+    @Param({ "3", "5", "9" })
+    public int numRotors;
+
+    /** Fraction of the letters paired by the plugboard. */
+    @Param({ "0", "0.5", "1" })
+    public double plugDensity;
+
+    /** Number of letters in the message. */
+    @Param({ "16", "1024", "65536" })
+    public int messageLength;
+
+    /** Set up a machine of a generated configuration, and a message for
+     *  it to convert. */
+    @Setup
+    public void setUp() {
+        _machine = BenchConfigs.machine(alphabetSize, numRotors, plugDensity,
+                                        SEED);
+        Alphabet alpha = new Alphabet(BenchConfigs.alphabet(alphabetSize));
+        _message = BenchConfigs.message(alphabetSize, messageLength,
+                                        new Random(SEED));
+        _indices = new int[messageLength];
+        for (int i = 0; i < messageLength; i++) {
+            _indices[i] = alpha.toInt(_message.charAt(i));
+        }
+    }
+
+    /** Return the sum of the converted letters of the message, converted
+     *  one index at a time. */
+    @Benchmark
+    public int convertInt() {
+        int sum = 0;
+        for (int c : _indices) {
+            sum += _machine.convert(c);
+        }
+        return sum;
+    }
+
+    /** Return the converted message. */
+    @Benchmark
+    public String convertString() {
+        return _machine.convert(_message);
+    }
+
+    /** Seed of the generated configuration and message. */
+    private static final long SEED = 61;
+
+    /** The machine measured. */
+    private Machine _machine;
+    /** The message converted. */
+    private String _message;
+    /** The indices of the letters of _message. */
+    private int[] _indices;
+
+}
@@ -0,0 +1,100 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Permutation.permute and invert and of Alphabet.toInt,
+ *  each timed per letter over a random sequence of letters.
+ *  @author Kaley Wong
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PermutationBench {
+
+    /** Number of letters in the alphabet. */
+    @Param({ "26", "62", "256" })
+    public int alphabetSize;
+
+    /** Set up a random permutation of a new alphabet, and letters to
+     *  apply it to. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        String chars = BenchConfigs.alphabet(alphabetSize);
+        _alphabet = new Alphabet(chars);
+        String cycle = BenchConfigs.cycle(chars, random);
+        _perm = new Permutation(cycle, _alphabet);
+        String message = BenchConfigs.message(alphabetSize, LETTERS, random);
+        _chars = message.toCharArray();
+        _indices = new int[LETTERS];
+        for (int i = 0; i < LETTERS; i++) {
+            _indices[i] = _alphabet.toInt(_chars[i]);
+        }
+    }
+
+    /** Return the sum of the permuted letters. */
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public int permute() {
+        int sum = 0;
+        for (int p : _indices) {
+            sum += _perm.permute(p);
+        }
+        return sum;
+    }
+
+    /** Return the sum of the inversely permuted letters. */
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public int invert() {
+        int sum = 0;
+        for (int c : _indices) {
+            sum += _perm.invert(c);
+        }
+        return sum;
+    }
+
+    /** Return the sum of the indices of the letters. */
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public int toInt() {
+        int sum = 0;
+        for (char ch : _chars) {
+            sum += _alphabet.toInt(ch);
+        }
+        return sum;
+    }
+
+    /** Number of letters converted by each invocation. */
+    static final int LETTERS = 1024;
+
+    /** Seed of the generated alphabet, permutation and letters. */
+    private static final long SEED = 61;
+
+    /** The alphabet. */
+    private Alphabet _alphabet;
+    /** The permutation measured. */
+    private Permutation _perm;
+    /** The letters converted. */
+    private char[] _chars;
+    /** The indices of _chars. */
+    private int[] _indices;
+
+}
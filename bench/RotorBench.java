@@ -0,0 +1,85 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Rotor.convertForward and convertBackward at the rotor's
+ *  own setting, each timed per letter over a random sequence of letters.
+ *  @author Kaley Wong
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RotorBench {
+
+    /** Number of letters in the alphabet. */
+    @Param({ "26", "62", "256" })
+    public int alphabetSize;
+
+    /** Set up a moving rotor of a new alphabet at a random setting, and
+     *  letters for it to convert. */
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        String chars = BenchConfigs.alphabet(alphabetSize);
+        Alphabet alpha = new Alphabet(chars);
+        String cycle = BenchConfigs.cycle(chars, random);
+        _rotor = new MovingRotor("M", new Permutation(cycle, alpha),
+                                 chars.substring(0, 1));
+        _rotor.set(random.nextInt(alphabetSize));
+        _indices = new int[LETTERS];
+        for (int i = 0; i < LETTERS; i++) {
+            _indices[i] = random.nextInt(alphabetSize);
+        }
+    }
+
+    /** Return the sum of the letters converted forward. */
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public int convertForward() {
+        int sum = 0;
+        for (int p : _indices) {
+            sum += _rotor.convertForward(p);
+        }
+        return sum;
+    }
+
+    /** Return the sum of the letters converted backward. */
+    @Benchmark
+    @OperationsPerInvocation(LETTERS)
+    public int convertBackward() {
+        int sum = 0;
+        for (int e : _indices) {
+            sum += _rotor.convertBackward(e);
+        }
+        return sum;
+    }
+
+    /** Number of letters converted by each invocation. */
+    static final int LETTERS = 1024;
+
+    /** Seed of the generated rotor, setting and letters. */
+    private static final long SEED = 61;
+
+    /** The rotor measured. */
+    private Rotor _rotor;
+    /** The letters converted, as indices. */
+    private int[] _indices;
+
+}
@@ -0,0 +1,83 @@
+package enigma;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Main.setUp, setting up a machine from settings lines.
+ *  With one distinct line, every line after the first is restored from
+ *  Main's cache of recent settings; with more distinct lines than the
+ *  cache holds, taken in turn, every line is parsed.
+ *  @author Kaley Wong
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SettingsBench {
+
+    /** Number of letters in the alphabet. */
+    @Param({ "26", "62", "256" })
+    public int alphabetSize;
+
+    /** Number of rotor slots. */
+    @Param({ "3", "5", "9" })
+    public int numRotors;
+
+    /** Fraction of the letters paired by the plugboard. */
+    @Param({ "0", "0.5", "1" })
+    public double plugDensity;
+
+    /** Number of distinct settings lines set up in turn. */
+    @Param({ "1", "4096" })
+    public int distinctLines;
+
+    /** Set up a machine of a generated configuration, and the settings
+     *  lines to set it up with. */
+    @Setup
+    public void setUp() {
+        _main = BenchConfigs.newMain(BenchConfigs.config(alphabetSize,
+                                                         numRotors, SEED));
+        _machine = _main.readConfig();
+        Random random = new Random(SEED);
+        _lines = new String[distinctLines];
+        for (int k = 0; k < distinctLines; k++) {
+            _lines[k] = BenchConfigs.settings(alphabetSize, numRotors,
+                                              plugDensity, random);
+        }
+    }
+
+    /** Set up the machine from the next settings line, and return it. */
+    @Benchmark
+    public Machine setUpMachine() {
+        _next = _next + 1 == _lines.length ? 0 : _next + 1;
+        _main.setUp(_machine, _lines[_next], 1);
+        return _machine;
+    }
+
+    /** Seed of the generated configuration and settings. */
+    private static final long SEED = 61;
+
+    /** The Main setting up _machine. */
+    private Main _main;
+    /** The machine set up. */
+    private Machine _machine;
+    /** The settings lines. */
+    private String[] _lines;
+    /** Index of the last settings line used. */
+    private int _next;
+
+}